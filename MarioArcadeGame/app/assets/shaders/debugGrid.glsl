@@ -0,0 +1,41 @@
+#type vertex
+#version 330 core
+
+layout (std140) uniform Camera
+{
+    mat4 uProjection;
+    mat4 uView;
+    mat4 uInverseViewProjection;
+};
+
+out vec2 fWorld;
+
+void main()
+{
+    // One triangle covering the whole screen: (-1, -1), (3, -1), (-1, 3)
+    vec2 ndc = vec2((gl_VertexID & 1) * 4.0 - 1.0, (gl_VertexID >> 1) * 4.0 - 1.0);
+    fWorld = (uInverseViewProjection * vec4(ndc, 0.0, 1.0)).xy;
+    gl_Position = vec4(ndc, 0.0, 1.0);
+}
+
+#type fragment
+#version 330 core
+
+in vec2 fWorld;
+
+uniform vec2 uGridSize;
+uniform vec3 uColor;
+
+out vec4 color;
+
+void main()
+{
+    // Distance to the nearest grid line in pixels, lines are about one pixel wide
+    vec2 coord = fWorld / uGridSize;
+    vec2 lineDistance = abs(fract(coord - 0.5) - 0.5) / fwidth(coord);
+    float alpha = 1.0 - min(min(lineDistance.x, lineDistance.y), 1.0);
+    if (alpha <= 0.0) {
+        discard;
+    }
+    color = vec4(uColor * alpha, alpha);
+}
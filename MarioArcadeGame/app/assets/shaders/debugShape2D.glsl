@@ -0,0 +1,69 @@
+#type vertex
+#version 330 core
+layout (location=0) in vec2 aCenter;
+layout (location=1) in vec2 aHalfSize;
+layout (location=2) in float aRotation;
+layout (location=3) in vec3 aColor;
+layout (location=4) in float aKind;
+
+layout (std140) uniform Camera
+{
+    mat4 uProjection;
+    mat4 uView;
+    mat4 uInverseViewProjection;
+};
+uniform float uPixelSize;
+
+out vec2 fLocal;
+flat out vec2 fHalfSize;
+flat out vec3 fColor;
+flat out int fKind;
+
+void main()
+{
+    // Triangle strip corners (-1, -1), (1, -1), (-1, 1), (1, 1), grown so the outline fits
+    vec2 corner = vec2(gl_VertexID & 1, gl_VertexID >> 1) * 2.0 - 1.0;
+    vec2 local = corner * (aHalfSize + 2.0 * uPixelSize);
+    float c = cos(aRotation);
+    float s = sin(aRotation);
+    vec2 world = aCenter + vec2(c * local.x - s * local.y, s * local.x + c * local.y);
+
+    fLocal = local;
+    fHalfSize = aHalfSize;
+    fColor = aColor;
+    fKind = int(aKind + 0.5);
+    gl_Position = uProjection * uView * vec4(world, -10.0, 1.0);
+}
+
+#type fragment
+#version 330 core
+
+in vec2 fLocal;
+flat in vec2 fHalfSize;
+flat in vec3 fColor;
+flat in int fKind;
+
+out vec4 color;
+
+float sdBox(vec2 p, vec2 halfSize)
+{
+    vec2 q = abs(p) - halfSize;
+    return length(max(q, 0.0)) + min(max(q.x, q.y), 0.0);
+}
+
+void main()
+{
+    float dist;
+    switch (fKind) {
+        case 0: dist = length(fLocal) - fHalfSize.x; break;
+        default: dist = sdBox(fLocal, fHalfSize); break;
+    }
+
+    // Outline about one pixel to each side of the edge, antialiased
+    float width = fwidth(dist);
+    float alpha = 1.0 - smoothstep(width, 2.0 * width, abs(dist));
+    if (alpha <= 0.0) {
+        discard;
+    }
+    color = vec4(fColor * alpha, alpha);
+}
@@ -0,0 +1,57 @@
+#type vertex
+#version 330 core
+layout (location=0) in vec2 aPos;
+layout (location=1) in vec4 aColor;
+layout (location=2) in vec2 aTexCoords;
+layout (location=3) in uint aTexId;
+layout (location=4) in uint aEntityId;
+
+layout (std140) uniform Camera
+{
+    mat4 uProjection;
+    mat4 uView;
+    mat4 uInverseViewProjection;
+};
+
+out vec2 fTexCoords;
+flat out uint fTexId;
+flat out uint fEntityId;
+
+void main()
+{
+    fTexCoords = aTexCoords;
+    fTexId = aTexId;
+    fEntityId = aEntityId;
+    gl_Position = uProjection * uView * vec4(aPos, 0.0, 1.0);
+}
+
+#type fragment
+#version 330 core
+
+in vec2 fTexCoords;
+flat in uint fTexId;
+flat in uint fEntityId;
+
+uniform sampler2D uTextures[8];
+
+out uint color;
+
+void main()
+{
+    vec4 texColor = vec4(1, 1, 1, 1);
+    switch (int(fTexId)) {
+        case 1: texColor = texture(uTextures[1], fTexCoords); break;
+        case 2: texColor = texture(uTextures[2], fTexCoords); break;
+        case 3: texColor = texture(uTextures[3], fTexCoords); break;
+        case 4: texColor = texture(uTextures[4], fTexCoords); break;
+        case 5: texColor = texture(uTextures[5], fTexCoords); break;
+        case 6: texColor = texture(uTextures[6], fTexCoords); break;
+        case 7: texColor = texture(uTextures[7], fTexCoords); break;
+    }
+
+    // Transparent pixels must not be pickable
+    if (texColor.a < 0.5) {
+        discard;
+    }
+    color = fEntityId;
+}
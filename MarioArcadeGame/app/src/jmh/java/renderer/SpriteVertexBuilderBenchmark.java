@@ -0,0 +1,84 @@
+package renderer;
+
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// One operation is one sprite, so gc.alloc.rate.norm is the bytes allocated per sprite and should be 0
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class SpriteVertexBuilderBenchmark {
+    private static final int SPRITES = 1000;
+
+    @Param({"false", "true"})
+    private boolean rotated;
+
+    private Arena arena;
+    private MemorySegment vertexData;
+    private float[] positions;
+    private float[] rotations;
+    private Vector2f[] texCoords;
+    private Vector4f atlasRegion;
+    private Vector4f color;
+
+    @Setup
+    public void setup() {
+        arena = Arena.ofConfined();
+        vertexData = arena.allocate((long)SPRITES * SpriteVertexBuilder.SPRITE_SIZE_BYTES, Long.BYTES);
+
+        Random random = new Random(42);
+        positions = new float[SPRITES * 2];
+        rotations = new float[SPRITES];
+        for (int i=0; i < SPRITES; i++) {
+            positions[i * 2] = random.nextFloat() * 100.0f;
+            positions[i * 2 + 1] = random.nextFloat() * 10.0f;
+            rotations[i] = rotated ? random.nextFloat() * 360.0f : 0.0f;
+        }
+
+        texCoords = new Vector2f[]{
+                new Vector2f(1, 1),
+                new Vector2f(1, 0),
+                new Vector2f(0, 0),
+                new Vector2f(0, 1)
+        };
+        atlasRegion = new Vector4f(0.25f, 0.5f, 0.125f, 0.125f);
+        color = new Vector4f(1, 1, 1, 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        arena.close();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SPRITES)
+    public MemorySegment writeSprites() {
+        for (int i=0; i < SPRITES; i++) {
+            SpriteVertexBuilder.writeSprite(vertexData, (long)i * SpriteVertexBuilder.SPRITE_SIZE_BYTES,
+                    positions[i * 2], positions[i * 2 + 1], 0.25f, 0.25f, rotations[i],
+                    texCoords, atlasRegion, color, i + 1, 1);
+        }
+        return vertexData;
+    }
+}
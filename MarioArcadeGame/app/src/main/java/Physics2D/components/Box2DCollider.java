@@ -29,7 +29,9 @@ public class Box2DCollider extends Component {
 
     @Override
     public void editorUpdate(float dt) {
-        Vector2f center = new Vector2f(this.gameObject.transform.position).add(this.offset);
-        DebugDraw.addBox2D(center, this.halfSize, this.gameObject.transform.rotation);
+        DebugDraw.addBox2D(this.gameObject.transform.position.x + this.offset.x,
+                this.gameObject.transform.position.y + this.offset.y,
+                this.halfSize.x, this.halfSize.y, this.gameObject.transform.rotation,
+                0, 1, 0, 1);
     }
 }
@@ -28,8 +28,9 @@ public class CircleCollider extends Component {
 
     @Override
     public void editorUpdate(float dt) {
-        Vector2f center = new Vector2f(this.gameObject.transform.position).add(this.offset);
-        DebugDraw.addCircle(center, this.radius);
+        DebugDraw.addCircle(this.gameObject.transform.position.x + this.offset.x,
+                this.gameObject.transform.position.y + this.offset.y,
+                this.radius, 0, 1, 0, 1);
 
         if (resetFixtureNextFrame) {
             resetFixture();
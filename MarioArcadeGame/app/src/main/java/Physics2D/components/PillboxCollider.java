@@ -4,6 +4,7 @@ import components.Component;
 import jade.Window;
 import org.jbox2d.dynamics.contacts.ContactVelocityConstraint;
 import org.joml.Vector2f;
+import renderer.DebugDraw;
 import physics2d.components.Box2DCollider;
 import physics2d.components.CircleCollider;
 
@@ -11,6 +12,7 @@ public class PillboxCollider extends Component {
     private transient CircleCollider bottomCircle = new CircleCollider();
     private transient Box2DCollider box = new Box2DCollider();
     private transient boolean resetFixtureNextFrame = false;
+    private transient float lastWidth, lastHeight;
 
     public float width = 0.1f;
     public float height = 0.2f;
@@ -25,9 +27,20 @@ public class PillboxCollider extends Component {
 
     @Override
     public void editorUpdate(float dt) {
-        bottomCircle.editorUpdate(dt);
-        box.editorUpdate(dt);
-        recalculateColliders();
+        // Sizes edited in the inspector only rebuild the colliders and fixture when they change
+        if (width != lastWidth || height != lastHeight) {
+            recalculateColliders();
+            resetFixture();
+        }
+
+        // Outline the box and the bottom circle, the shapes physics actually uses
+        float circleRadius = width / 2.0f;
+        float boxHeight = height - circleRadius;
+        Vector2f position = this.gameObject.transform.position;
+        DebugDraw.addCircle(position.x + offset.x, position.y + offset.y - (height - circleRadius * 2.0f) / 2.0f,
+                circleRadius, 0, 1, 0, 1);
+        DebugDraw.addBox2D(position.x + offset.x, position.y + offset.y + (height - boxHeight) / 2.0f,
+                width - 0.01f, boxHeight, this.gameObject.transform.rotation, 0, 1, 0, 1);
 
         if (resetFixtureNextFrame) {
             resetFixture();
@@ -75,6 +88,8 @@ public class PillboxCollider extends Component {
         bottomCircle.setOffset(new Vector2f(offset).sub(0, (height - circleRadius * 2.0f) / 2.0f));
         box.setHalfSize(new Vector2f(width - 0.01f, boxHeight));
         box.setOffset(new Vector2f(offset).add(0, (height - boxHeight) / 2.0f));
+        lastWidth = width;
+        lastHeight = height;
     }
 
     public CircleCollider getBottomCircle() {
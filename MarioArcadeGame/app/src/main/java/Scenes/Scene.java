@@ -1,4 +1,4 @@
-package Scenes;
+package scenes;
 
 
 
@@ -14,13 +14,17 @@ import jade.Transform;
 import org.joml.Vector2f;
 import physics2d.Physics2D;
 import renderer.Renderer;
+import util.AssetPool;
 
 import java.io.FileWriter;
+import java.lang.foreign.Arena;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 public class Scene {
@@ -29,16 +33,21 @@ public class Scene {
     private Camera camera;
     private boolean isRunning;
     private List<GameObject> gameObjects;
+    private Map<Integer, GameObject> gameObjectsById;
     private List<GameObject> pendingObjects;
     private Physics2D physics2D;
+    // Off-heap staging memory that lives as long as the scene. Shared, since batches are built on worker threads
+    private Arena arena;
 
     private SceneInitializer sceneInitializer;
 
     public Scene(SceneInitializer sceneInitializer) {
         this.sceneInitializer = sceneInitializer;
         this.physics2D = new Physics2D();
-        this.renderer = new Renderer();
+        this.arena = Arena.ofShared();
+        this.renderer = new Renderer(arena);
         this.gameObjects = new ArrayList<>();
+        this.gameObjectsById = new HashMap<>();
         this.pendingObjects = new ArrayList<>();
         this.isRunning = false;
     }
@@ -50,6 +59,7 @@ public class Scene {
     public void init() {
         this.camera = new Camera(new Vector2f(0, 0));
         this.sceneInitializer.loadResources(this);
+        AssetPool.packSpritesheets();
         this.sceneInitializer.init(this);
     }
 
@@ -66,6 +76,7 @@ public class Scene {
     public void addGameObjectToScene(GameObject go) {
         if (!isRunning) {
             gameObjects.add(go);
+            gameObjectsById.put(go.getUid(), go);
         } else {
             pendingObjects.add(go);
         }
@@ -75,6 +86,8 @@ public class Scene {
         for (GameObject go : gameObjects) {
             go.destroy();
         }
+        this.renderer.destroy();
+        this.arena.close();
     }
 
     public <T extends Component> GameObject getGameObjectWith(Class<T> clazz) {
@@ -92,10 +105,7 @@ public class Scene {
     }
     
 public GameObject getGameObject(int gameObjectId) {
-        Optional<GameObject> result = this.gameObjects.stream()
-                .filter(gameObject -> gameObject.getUid() == gameObjectId)
-                .findFirst();
-        return result.orElse(null);
+        return this.gameObjectsById.get(gameObjectId);
     }
 
     public void editorUpdate(float dt) {
@@ -107,6 +117,7 @@ public GameObject getGameObject(int gameObjectId) {
 
             if (go.isDead()) {
                 gameObjects.remove(i);
+                gameObjectsById.remove(go.getUid());
                 this.renderer.destroyGameObject(go);
                 this.physics2D.destroyGameObject(go);
                 i--;
@@ -114,6 +125,7 @@ public GameObject getGameObject(int gameObjectId) {
         }
          for (GameObject go : pendingObjects) {
             gameObjects.add(go);
+            gameObjectsById.put(go.getUid(), go);
             go.start();
             this.renderer.add(go);
             this.physics2D.add(go);
@@ -138,6 +150,7 @@ public GameObject getGameObject(int gameObjectId) {
 
             if (go.isDead()) {
                 gameObjects.remove(i);
+                gameObjectsById.remove(go.getUid());
                 this.renderer.destroyGameObject(go);
                 this.physics2D.destroyGameObject(go);
                 i--;
@@ -146,6 +159,7 @@ public GameObject getGameObject(int gameObjectId) {
 
         for (GameObject go : pendingObjects) {
             gameObjects.add(go);
+            gameObjectsById.put(go.getUid(), go);
             go.start();
             this.renderer.add(go);
             this.physics2D.add(go);
@@ -154,7 +168,20 @@ public GameObject getGameObject(int gameObjectId) {
     }
 
     public void render() {
-        this.renderer.render();
+        this.renderer.render(this.camera);
+    }
+
+    // Draws what the last render() prepared again, for passes like picking that need no new frame
+    public void drawPrepared() {
+        this.renderer.drawPrepared();
+    }
+
+    public Arena getArena() {
+        return this.arena;
+    }
+
+    public Renderer getRenderer() {
+        return this.renderer;
     }
 
     public Camera camera() {
@@ -9,12 +9,12 @@ import org.joml.Vector2f;
 import org.joml.Vector2i;
 import org.joml.Vector4f;
 import renderer.DebugDraw;
-import renderer.PickingTexture;
-import scenes.Scene;
+import renderer.Picker;
 import util.Settings;
 
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 import static org.lwjgl.glfw.GLFW.GLFW_KEY_ESCAPE;
 import static org.lwjgl.glfw.GLFW.GLFW_MOUSE_BUTTON_LEFT;
@@ -28,6 +28,9 @@ public class MouseControls extends Component {
     private Vector2f boxSelectStart = new Vector2f();
     private Vector2f boxSelectEnd = new Vector2f();
 
+    // Grid cells already checked or painted during the current drag, their readback may still be in flight
+    private Set<Long> dragCells = new HashSet<>();
+
     public void pickupObject(GameObject go) {
         if (this.holdingObject != null) {
             this.holdingObject.destroy();
@@ -39,7 +42,12 @@ public class MouseControls extends Component {
     }
 
     public void place() {
+        place(holdingObject.transform.position.x, holdingObject.transform.position.y);
+    }
+
+    private void place(float x, float y) {
         GameObject newObj = holdingObject.copy();
+        newObj.transform.position.set(x, y);
         if (newObj.getComponent(StateMachine.class) != null) {
             newObj.getComponent(StateMachine.class).refreshTextures();
         }
@@ -51,8 +59,7 @@ public class MouseControls extends Component {
 @Override
     public void editorUpdate(float dt) {
         debounce -= dt;
-        PickingTexture pickingTexture = Window.getImguiLayer().getPropertiesWindow().getPickingTexture();
-        Scene currentScene = Window.getScene();
+        Picker picker = Window.getImguiLayer().getPropertiesWindow().getPicker();
 
         if (holdingObject != null) {
             float x = MouseListener.getWorldX();
@@ -61,16 +68,14 @@ public class MouseControls extends Component {
             holdingObject.transform.position.y = ((int)Math.floor(y / Settings.GRID_HEIGHT) * Settings.GRID_HEIGHT) + Settings.GRID_HEIGHT / 2.0f;
 
             if (MouseListener.mouseButtonDown(GLFW_MOUSE_BUTTON_LEFT)) {
-                float halfWidth = Settings.GRID_WIDTH / 2.0f;
-                float halfHeight = Settings.GRID_HEIGHT / 2.0f;
-                if (MouseListener.isDragging() &&
-                    !blockInSquare(holdingObject.transform.position.x - halfWidth,
-                            holdingObject.transform.position.y - halfHeight)) {
-                    place();
-                } else if (!MouseListener.isDragging() && debounce < 0) {
+                if (MouseListener.isDragging()) {
+                    paintCell(holdingObject.transform.position.x, holdingObject.transform.position.y);
+                } else if (debounce < 0) {
                     place();
                     debounce = debounceTime;
                 }
+            } else {
+                dragCells.clear();
             }
 
             if (KeyListener.isKeyPressed(GLFW_KEY_ESCAPE)) {
@@ -80,11 +85,10 @@ public class MouseControls extends Component {
         } else if (!MouseListener.isDragging() && MouseListener.mouseButtonDown(GLFW_MOUSE_BUTTON_LEFT) && debounce < 0) {
             int x = (int)MouseListener.getScreenX();
             int y = (int)MouseListener.getScreenY();
-            int gameObjectId = pickingTexture.readPixel(x, y);
-            GameObject pickedObj = currentScene.getGameObject(gameObjectId);
-            if (pickedObj != null && pickedObj.getComponent(NonPickable.class) == null) {
+            GameObject pickedObj = picker.pick(x, y);
+            if (pickedObj != null) {
                 Window.getImguiLayer().getPropertiesWindow().setActiveGameObject(pickedObj);
-            } else if (pickedObj == null && !MouseListener.isDragging()) {
+            } else if (!MouseListener.isDragging()) {
                 Window.getImguiLayer().getPropertiesWindow().clearSelected();
             }
             this.debounce = 0.2f;
@@ -123,43 +127,45 @@ public class MouseControls extends Component {
                 screenEndY = tmp;
             }
 
-            float[] gameObjectIds = pickingTexture.readPixels(
+            picker.pickRect(
                     new Vector2i(screenStartX, screenStartY),
                     new Vector2i(screenEndX, screenEndY)
-            );
-            Set<Integer> uniqueGameObjectIds = new HashSet<>();
-            for (float objId : gameObjectIds) {
-                uniqueGameObjectIds.add((int)objId);
-            }
-
-            for (Integer gameObjectId : uniqueGameObjectIds) {
-                GameObject pickedObj = Window.getScene().getGameObject(gameObjectId);
-                if (pickedObj != null && pickedObj.getComponent(NonPickable.class) == null) {
+            ).thenAccept(pickedObjs -> {
+                for (GameObject pickedObj : pickedObjs) {
                     Window.getImguiLayer().getPropertiesWindow().addActiveGameObject(pickedObj);
                 }
-            }
+            });
+        }
+    }
+
+    private void paintCell(float x, float y) {
+        long cell = ((long)Math.floor(x / Settings.GRID_WIDTH) << 32) | ((long)Math.floor(y / Settings.GRID_HEIGHT) & 0xFFFFFFFFL);
+        if (!dragCells.add(cell)) {
+            return;
         }
+
+        // The cell is checked a frame later, so place at the cell that was asked for
+        float halfWidth = Settings.GRID_WIDTH / 2.0f;
+        float halfHeight = Settings.GRID_HEIGHT / 2.0f;
+        blockInSquare(x - halfWidth, y - halfHeight).thenAccept(occupied -> {
+            if (!occupied && holdingObject != null) {
+                place(x, y);
+            }
+        });
     }
     
-private boolean blockInSquare(float x, float y) {
+private CompletableFuture<Boolean> blockInSquare(float x, float y) {
         PropertiesWindow propertiesWindow = Window.getImguiLayer().getPropertiesWindow();
         Vector2f start = new Vector2f(x, y);
         Vector2f end = new Vector2f(start).add(new Vector2f(Settings.GRID_WIDTH, Settings.GRID_HEIGHT));
         Vector2f startScreenf = MouseListener.worldToScreen(start);
         Vector2f endScreenf = MouseListener.worldToScreen(end);
-        Vector2i startScreen = new Vector2i((int)startScreenf.x + 2, (int)startScreenf.y + 2);
-        Vector2i endScreen = new Vector2i((int)endScreenf.x - 2, (int)endScreenf.y - 2);
-        float[] gameObjectIds = propertiesWindow.getPickingTexture().readPixels(startScreen, endScreen);
-
-        for (int i = 0; i < gameObjectIds.length; i++) {
-            if (gameObjectIds[i] >= 0) {
-                GameObject pickedObj = Window.getScene().getGameObject((int)gameObjectIds[i]);
-                if (pickedObj.getComponent(NonPickable.class) == null) {
-                    return true;
-                }
-            }
-        }
-
-        return false;
+        // A quarter of the cell is left as margin so neighbours touching its edges are not picked. The margin follows
+        // the cell's size on screen, which shrinks with the target resolution and the zoom, and at least a pixel is kept
+        Vector2f inset = new Vector2f(endScreenf).sub(startScreenf).mul(0.25f);
+        Vector2i startScreen = new Vector2i((int)(startScreenf.x + inset.x), (int)(startScreenf.y + inset.y));
+        Vector2i endScreen = new Vector2i(Math.max(startScreen.x + 1, (int)Math.ceil(endScreenf.x - inset.x)),
+                Math.max(startScreen.y + 1, (int)Math.ceil(endScreenf.y - inset.y)));
+        return propertiesWindow.getPicker().pickRect(startScreen, endScreen).thenApply(pickedObjs -> !pickedObjs.isEmpty());
     }
 }
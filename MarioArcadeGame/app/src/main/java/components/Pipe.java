@@ -80,6 +80,22 @@ public class Pipe extends Component {
         }
     }
 
+    private Vector2f getPlayerPosition(GameObject pipe) {
+        Pipe pipeComponent = pipe.getComponent(Pipe.class);
+        switch (pipeComponent.direction) {
+            case Up:
+                return new Vector2f(pipe.transform.position).add(0.0f, entranceVectorTolerance);
+            case Left:
+                return new Vector2f(pipe.transform.position).add(-entranceVectorTolerance, 0.0f);
+            case Right:
+                return new Vector2f(pipe.transform.position).add(entranceVectorTolerance, 0.0f);
+            case Down:
+                return new Vector2f(pipe.transform.position).add(0.0f, -entranceVectorTolerance);
+        }
+
+        return new Vector2f();
+    }
+
     public boolean playerAtEntrance() {
         if (collidingPlayer == null) {
             return false;
@@ -132,4 +148,4 @@ public class Pipe extends Component {
             collidingPlayer = null;
         }
     }
-    
+}
@@ -256,8 +256,9 @@ if (hurtInvincibilityTimeLeft > 0) {
 
         stateMachine.trigger("powerup");
     }
-    
-     if (!playWinAnimation) {
+
+    public void playWinAnimation(GameObject flagpole) {
+        if (!playWinAnimation) {
             playWinAnimation = true;
             velocity.set(0.0f, 0.0f);
             acceleration.set(0.0f, 0.0f);
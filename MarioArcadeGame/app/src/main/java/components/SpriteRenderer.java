@@ -12,6 +12,8 @@ public class SpriteRenderer extends Component {
 
     private Vector4f color = new Vector4f(1, 1, 1, 1);
     private Sprite sprite = new Sprite();
+    // Marks scenery that never moves, it is drawn from a static batch
+    private boolean isStatic = false;
 
     private transient Transform lastTransform;
     private transient boolean isDirty = true;
@@ -75,6 +77,14 @@ public class SpriteRenderer extends Component {
         }
     }
 
+    public boolean isStatic() {
+        return this.isStatic;
+    }
+
+    public void setStatic(boolean isStatic) {
+        this.isStatic = isStatic;
+    }
+
     public boolean isDirty() {
         return this.isDirty;
     }
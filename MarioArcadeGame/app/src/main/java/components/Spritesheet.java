@@ -53,4 +53,8 @@ public Sprite getSprite(int index) {
     public int size() {
         return sprites.size();
     }
+
+    public Texture getTexture() {
+        return this.texture;
+    }
 }
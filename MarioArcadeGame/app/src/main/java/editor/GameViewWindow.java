@@ -9,6 +9,8 @@ import observers.EventSystem;
 import observers.events.Event;
 import observers.events.EventType;
 import org.joml.Vector2f;
+import renderer.Framebuffer;
+import renderer.RenderResolution;
 
 public class GameViewWindow {
 
@@ -36,8 +38,11 @@ public class GameViewWindow {
         ImVec2 windowPos = getCenteredPositionForViewport(windowSize);
         ImGui.setCursorPos(windowPos.x, windowPos.y);
 
-        int textureId = Window.getFramebuffer().getTextureId();
-        ImGui.imageButton(textureId, windowSize.x, windowSize.y, 0, 1, 1, 0);
+        // With a dynamic scale below 1 the scene only fills the bottom left of the framebuffer
+        Framebuffer framebuffer = Window.getFramebuffer();
+        float u = RenderResolution.getViewportWidth() / (float)framebuffer.width;
+        float v = RenderResolution.getViewportHeight() / (float)framebuffer.height;
+        ImGui.imageButton(framebuffer.getTextureId(), windowSize.x, windowSize.y, 0, v, u, 0);
         windowIsHovered = ImGui.isItemHovered();
 
         MouseListener.setGameViewportPos(new Vector2f(windowPos.x + 10, windowPos.y));
@@ -148,4 +148,82 @@ public class JImGui {
 
         ImGui.popStyleVar();
         ImGui.popID();
-    }
\ No newline at end of file
+    }
+
+    public static float dragFloat(String label, float value) {
+        ImGui.pushID(label);
+
+        ImGui.columns(2);
+        ImGui.setColumnWidth(0, defaultColumnWidth);
+        ImGui.text(label);
+        ImGui.nextColumn();
+
+        float[] valArr = {value};
+        ImGui.dragFloat("##dragFloat", valArr, 0.1f);
+
+        ImGui.columns(1);
+        ImGui.popID();
+
+        return valArr[0];
+    }
+
+    public static int dragInt(String label, int value) {
+        ImGui.pushID(label);
+
+        ImGui.columns(2);
+        ImGui.setColumnWidth(0, defaultColumnWidth);
+        ImGui.text(label);
+        ImGui.nextColumn();
+
+        int[] valArr = {value};
+        ImGui.dragInt("##dragInt", valArr, 0.1f);
+
+        ImGui.columns(1);
+        ImGui.popID();
+
+        return valArr[0];
+    }
+
+    public static boolean colorPicker4(String label, Vector4f color) {
+        boolean res = false;
+        ImGui.pushID(label);
+
+        ImGui.columns(2);
+        ImGui.setColumnWidth(0, defaultColumnWidth);
+        ImGui.text(label);
+        ImGui.nextColumn();
+
+        float[] imColor = {color.x, color.y, color.z, color.w};
+        if (ImGui.colorEdit4("##colorPicker", imColor)) {
+            color.set(imColor[0], imColor[1], imColor[2], imColor[3]);
+            res = true;
+        }
+
+        ImGui.columns(1);
+        ImGui.popID();
+
+        return res;
+    }
+
+    public static String inputText(String label, String text) {
+        ImGui.pushID(label);
+
+        ImGui.columns(2);
+        ImGui.setColumnWidth(0, defaultColumnWidth);
+        ImGui.text(label);
+        ImGui.nextColumn();
+
+        ImString outString = new ImString(text, 256);
+        if (ImGui.inputText("##" + label, outString)) {
+            ImGui.columns(1);
+            ImGui.popID();
+
+            return outString.get();
+        }
+
+        ImGui.columns(1);
+        ImGui.popID();
+
+        return text;
+    }
+}
@@ -9,7 +9,7 @@ import org.joml.Vector4f;
 import physics2d.components.Box2DCollider;
 import physics2d.components.CircleCollider;
 import physics2d.components.Rigidbody2D;
-import renderer.PickingTexture;
+import renderer.Picker;
 import scenes.Scene;
 
 import java.util.ArrayList;
@@ -21,11 +21,11 @@ public class PropertiesWindow {
     private List<GameObject> activeGameObjects;
     private List<Vector4f> activeGameObjectsOgColor;
     private GameObject activeGameObject = null;
-    private PickingTexture pickingTexture;
+    private Picker picker;
 
-    public PropertiesWindow(PickingTexture pickingTexture) {
+    public PropertiesWindow(Picker picker) {
         this.activeGameObjects = new ArrayList<>();
-        this.pickingTexture = pickingTexture;
+        this.picker = picker;
         this.activeGameObjectsOgColor = new ArrayList<>();
     }
 
@@ -105,7 +105,7 @@ public class PropertiesWindow {
         this.activeGameObjects.add(go);
     }
 
-    public PickingTexture getPickingTexture() {
-        return this.pickingTexture;
+    public Picker getPicker() {
+        return this.picker;
     }
 }
@@ -0,0 +1,45 @@
+package editor;
+
+import imgui.ImGui;
+import renderer.RenderResolution;
+import renderer.RenderStats;
+import renderer.Renderer;
+
+public class RenderStatsWindow {
+
+    private float[] frameBudget = {RenderResolution.getFrameBudget()};
+
+    public void imgui() {
+        ImGui.begin("Render Stats");
+
+        // Every counter is the total of the last completed frame
+        ImGui.text(String.format("Prepare: %.2f ms  Build: %.2f ms  Draw: %.2f ms",
+                RenderStats.getPrepareMillis(), RenderStats.getBuildMillis(), RenderStats.getDrawMillis()));
+        ImGui.text("Draw calls: " + RenderStats.getDrawCalls() + "  State changes: " + RenderStats.getStateChanges());
+        ImGui.text("Sprites drawn: " + RenderStats.getSpritesDrawn() + "  Culled: " + RenderStats.getSpritesCulled());
+        ImGui.text(String.format("Uploaded: %.1f KB", RenderStats.getBytesUploaded() / 1024.0f));
+        ImGui.text("Uniforms issued: " + RenderStats.getUniformsIssued() + "  Skipped: " + RenderStats.getUniformsSkipped());
+        ImGui.text("GL calls saved: " + RenderStats.getGLCallsSaved());
+        ImGui.text("Resolution: " + RenderResolution.getViewportWidth() + " x " + RenderResolution.getViewportHeight() +
+                String.format(" (%.0f%%)", RenderResolution.getScale() * 100.0f));
+
+        ImGui.separator();
+        if (ImGui.checkbox("Parallel prepare", Renderer.isParallelPrepare())) {
+            Renderer.setParallelPrepare(!Renderer.isParallelPrepare());
+        }
+        // Renderers read this when they are created, so it shows after the next scene change
+        if (ImGui.checkbox("Instanced rendering (next scene)", Renderer.isInstancedRendering())) {
+            Renderer.setInstancedRendering(!Renderer.isInstancedRendering());
+        }
+
+        boolean dynamic = RenderResolution.getMode() == RenderResolution.Mode.DYNAMIC;
+        if (ImGui.checkbox("Dynamic resolution", dynamic)) {
+            RenderResolution.setMode(dynamic ? RenderResolution.Mode.NATIVE : RenderResolution.Mode.DYNAMIC);
+        }
+        if (dynamic && ImGui.dragFloat("Scene budget (ms)", frameBudget, 0.1f, 1.0f, 33.0f)) {
+            RenderResolution.setFrameBudget(frameBudget[0]);
+        }
+
+        ImGui.end();
+    }
+}
@@ -2,60 +2,103 @@ package jade;
 
 import org.joml.Matrix4f;
 import org.joml.Vector2f;
-import org.joml.Vector3f;
 import org.joml.Vector4f;
 
 public class Camera {
     private Matrix4f projectionMatrix, viewMatrix, inverseProjection, inverseView;
+    private Matrix4f viewProjection, inverseViewProjection;
     public Vector2f position;
 
-    private float projectionWidth = 6;
-    private float projectionHeight = 3;
+    // World units shown at zoom 1
+    public static final float PROJECTION_WIDTH = 6;
+    public static final float PROJECTION_HEIGHT = 3;
     public Vector4f clearColor = new Vector4f(1, 1, 1, 1);
-    private Vector2f projectionSize = new Vector2f(projectionWidth, projectionHeight);
+    private Vector2f projectionSize = new Vector2f(PROJECTION_WIDTH, PROJECTION_HEIGHT);
 
     private float zoom = 1.0f;
 
+    // What the matrices were last built from, they are only rebuilt when one of these changes
+    private Vector2f lastPosition = new Vector2f();
+    private Vector2f lastProjectionSize = new Vector2f();
+    private float lastZoom = Float.NaN;
+    private int version = 0;
+
     public Camera(Vector2f position) {
         this.position = position;
         this.projectionMatrix = new Matrix4f();
         this.viewMatrix = new Matrix4f();
         this.inverseProjection = new Matrix4f();
         this.inverseView = new Matrix4f();
+        this.viewProjection = new Matrix4f();
+        this.inverseViewProjection = new Matrix4f();
         adjustProjection();
     }
 
     public void adjustProjection() {
-        projectionMatrix.identity();
-        projectionMatrix.ortho(0.0f, projectionSize.x * this.zoom,
-                0.0f, projectionSize.y * zoom, 0.0f, 100.0f);
-        inverseProjection = new Matrix4f(projectionMatrix).invert();
+        boolean projectionChanged = zoom != lastZoom || !projectionSize.equals(lastProjectionSize);
+        boolean viewChanged = version == 0 || !position.equals(lastPosition);
+        if (!projectionChanged && !viewChanged) {
+            return;
+        }
+
+        if (projectionChanged) {
+            projectionMatrix.identity();
+            projectionMatrix.ortho(0.0f, projectionSize.x * this.zoom,
+                    0.0f, projectionSize.y * zoom, 0.0f, 100.0f);
+            projectionMatrix.invert(inverseProjection);
+            lastZoom = zoom;
+            lastProjectionSize.set(projectionSize);
+        }
+
+        if (viewChanged) {
+            viewMatrix.setLookAt(position.x, position.y, 20.0f,
+                                 position.x, position.y, -1.0f,
+                                 0.0f, 1.0f, 0.0f);
+            viewMatrix.invert(inverseView);
+            lastPosition.set(position);
+        }
+
+        projectionMatrix.mul(viewMatrix, viewProjection);
+        inverseView.mul(inverseProjection, inverseViewProjection);
+        version++;
     }
 
     public Matrix4f getViewMatrix() {
-        Vector3f cameraFront = new Vector3f(0.0f, 0.0f, -1.0f);
-        Vector3f cameraUp = new Vector3f(0.0f, 1.0f, 0.0f);
-        viewMatrix.identity();
-        viewMatrix.lookAt(new Vector3f(position.x, position.y, 20.0f),
-                                        cameraFront.add(position.x, position.y, 0.0f),
-                                        cameraUp);
-        inverseView = new Matrix4f(this.viewMatrix).invert();
-
+        adjustProjection();
         return this.viewMatrix;
     }
 
     public Matrix4f getProjectionMatrix() {
+        adjustProjection();
         return this.projectionMatrix;
     }
 
     public Matrix4f getInverseProjection() {
+        adjustProjection();
         return this.inverseProjection;
     }
 
     public Matrix4f getInverseView() {
+        adjustProjection();
         return this.inverseView;
     }
 
+    public Matrix4f getViewProjection() {
+        adjustProjection();
+        return this.viewProjection;
+    }
+
+    public Matrix4f getInverseViewProjection() {
+        adjustProjection();
+        return this.inverseViewProjection;
+    }
+
+    // Changes every time the matrices are rebuilt
+    public int getVersion() {
+        adjustProjection();
+        return this.version;
+    }
+
     public Vector2f getProjectionSize() {
         return this.projectionSize;
     }
@@ -71,4 +114,4 @@ public class Camera {
     public void addZoom(float value) {
         this.zoom += value;
     }
-}
\ No newline at end of file
+}
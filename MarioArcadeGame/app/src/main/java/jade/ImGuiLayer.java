@@ -3,6 +3,7 @@ package jade;
 import editor.GameViewWindow;
 import editor.MenuBar;
 import editor.PropertiesWindow;
+import editor.RenderStatsWindow;
 import editor.SceneHierarchyWindow;
 import imgui.*;
 import imgui.callback.ImStrConsumer;
@@ -11,8 +12,7 @@ import imgui.flag.*;
 import imgui.gl3.ImGuiImplGl3;
 import imgui.glfw.ImGuiImplGlfw;
 import imgui.type.ImBoolean;
-import javafx.scene.text.Font;
-import renderer.PickingTexture;
+import renderer.Picker;
 import scenes.Scene;
 
 import java.awt.Graphics;
@@ -36,13 +36,15 @@ public class ImGuiLayer {
     private PropertiesWindow propertiesWindow;
     private MenuBar menuBar;
     private SceneHierarchyWindow sceneHeirarchyWindow;
+    private RenderStatsWindow renderStatsWindow;
 
-    public ImGuiLayer(long glfwWindow, PickingTexture pickingTexture) {
+    public ImGuiLayer(long glfwWindow, Picker picker) {
         this.glfwWindow = glfwWindow;
         this.gameViewWindow = new GameViewWindow();
-        this.propertiesWindow = new PropertiesWindow(pickingTexture);
+        this.propertiesWindow = new PropertiesWindow(picker);
         this.menuBar = new MenuBar();
         this.sceneHeirarchyWindow = new SceneHierarchyWindow();
+        this.renderStatsWindow = new RenderStatsWindow();
     }
 
     public GameViewWindow getGameViewWindow() {
@@ -186,6 +188,7 @@ public class ImGuiLayer {
         gameViewWindow.imgui();
         propertiesWindow.imgui();
         sceneHeirarchyWindow.imgui();
+        renderStatsWindow.imgui();
 
         endFrame();
     }
@@ -197,7 +200,7 @@ public class ImGuiLayer {
 
     private void endFrame() {
         glBindFramebuffer(GL_FRAMEBUFFER, 0);
-        glViewport(0, 0, Window.getWidth(), Window.getHeight());
+        glViewport(0, 0, Window.getWindowWidth(), Window.getWindowHeight());
         glClearColor(0, 0, 0, 1);
         glClear(GL_COLOR_BUFFER_BIT);
 
@@ -226,7 +229,7 @@ public class ImGuiLayer {
         ImGui.setNextWindowSize(mainViewport.getWorkSizeX(), mainViewport.getWorkSizeY());
         ImGui.setNextWindowViewport(mainViewport.getID());
         ImGui.setNextWindowPos(0.0f, 0.0f);
-        ImGui.setNextWindowSize(Window.getWidth(), Window.getHeight());
+        ImGui.setNextWindowSize(Window.getWindowWidth(), Window.getWindowHeight());
         ImGui.pushStyleVar(ImGuiStyleVar.WindowRounding, 0.0f);
         ImGui.pushStyleVar(ImGuiStyleVar.WindowBorderSize, 0.0f);
         windowFlags |= ImGuiWindowFlags.NoTitleBar | ImGuiWindowFlags.NoCollapse |
@@ -1,6 +1,5 @@
 package jade;
 
-import org.joml.Matrix4f;
 import org.joml.Vector2f;
 import org.joml.Vector4f;
 
@@ -144,9 +143,7 @@ public class MouseListener {
 
         Camera camera = Window.getScene().camera();
         Vector4f tmp = new Vector4f(currentX, currentY, 0, 1);
-        Matrix4f inverseView = new Matrix4f(camera.getInverseView());
-        Matrix4f inverseProjection = new Matrix4f(camera.getInverseProjection());
-        tmp.mul(inverseView.mul(inverseProjection));
+        tmp.mul(camera.getInverseViewProjection());
         return new Vector2f(tmp.x, tmp.y);
     }
 
@@ -159,18 +156,14 @@ public class MouseListener {
         Camera camera = Window.getScene().camera();
         Vector4f tmp = new Vector4f(normalizedScreenCords.x, normalizedScreenCords.y,
                 0, 1);
-        Matrix4f inverseView = new Matrix4f(camera.getInverseView());
-        Matrix4f inverseProjection = new Matrix4f(camera.getInverseProjection());
-        tmp.mul(inverseView.mul(inverseProjection));
+        tmp.mul(camera.getInverseViewProjection());
         return new Vector2f(tmp.x, tmp.y);
     }
 
     public static Vector2f worldToScreen(Vector2f worldCoords) {
         Camera camera = Window.getScene().camera();
         Vector4f ndcSpacePos = new Vector4f(worldCoords.x, worldCoords.y, 0, 1);
-        Matrix4f view = new Matrix4f(camera.getViewMatrix());
-        Matrix4f projection = new Matrix4f(camera.getProjectionMatrix());
-        ndcSpacePos.mul(projection.mul(view));
+        ndcSpacePos.mul(camera.getViewProjection());
         Vector2f windowSpace = new Vector2f(ndcSpacePos.x, ndcSpacePos.y).mul(1.0f / ndcSpacePos.w);
         windowSpace.add(new Vector2f(1.0f, 1.0f)).mul(0.5f);
         windowSpace.mul(new Vector2f(Window.getWidth(), Window.getHeight()));
@@ -188,9 +181,9 @@ public class MouseListener {
 
     public static Vector2f getScreen() {
         float currentX = getX() - get().gameViewportPos.x;
-        currentX = (currentX / get().gameViewportSize.x) * 3840.0f;
+        currentX = (currentX / get().gameViewportSize.x) * Window.getWidth();
         float currentY = (getY() - get().gameViewportPos.y);
-        currentY = (1.0f - (currentY / get().gameViewportSize.y)) * 2160.0f;
+        currentY = (1.0f - (currentY / get().gameViewportSize.y)) * Window.getHeight();
         return new Vector2f(currentX, currentY);
     }
 
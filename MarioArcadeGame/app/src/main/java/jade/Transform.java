@@ -30,7 +30,10 @@ public class Transform extends Component {
     }
 
     public Transform copy() {
-        return new Transform(new Vector2f(this.position), new Vector2f(this.scale));
+        Transform t = new Transform(new Vector2f(this.position), new Vector2f(this.scale));
+        t.rotation = this.rotation;
+        t.zIndex = this.zIndex;
+        return t;
     }
 
     @Override
@@ -45,6 +48,8 @@ public class Transform extends Component {
     public void copy(Transform to) {
         to.position.set(this.position);
         to.scale.set(this.scale);
+        to.rotation = this.rotation;
+        to.zIndex = this.zIndex;
     }
 
     @Override
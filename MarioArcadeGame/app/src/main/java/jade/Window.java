@@ -33,6 +33,7 @@ public class Window implements Observer {
     private ImGuiLayer imguiLayer;
     private Framebuffer framebuffer;
     private PickingTexture pickingTexture;
+    private RenderGraph renderGraph;
     private boolean runtimePlaying = false;
 
     private static Window window = null;
@@ -46,6 +47,15 @@ public class Window implements Observer {
     //       true means it will just ship the game without the editor and ImGui stuff
     public static final boolean RELEASE_BUILD = true;
 
+    // NOTE: true picks objects by drawing their ids on the GPU, which respects transparent pixels.
+    //       false answers picks from the renderer's index of sprite bounds and needs no picking texture,
+    //       but transparent parts of a sprite can be clicked
+    public static final boolean GPU_PICKING = true;
+
+    // NOTE: NATIVE draws the scene at the pixel-art resolution, DYNAMIC at the window size scaled down
+    //       whenever the scene takes longer than its frame-time budget. Both are scaled up with nearest filtering
+    public static final RenderResolution.Mode RESOLUTION_MODE = RenderResolution.Mode.NATIVE;
+
     private Window() {
         this.width = 1920;
         this.height = 1080;
@@ -165,16 +175,21 @@ public class Window implements Observer {
         glEnable(GL_BLEND);
         glBlendFunc(GL_ONE, GL_ONE_MINUS_SRC_ALPHA);
 
-        this.framebuffer = new Framebuffer(3840, 2160);
-        this.pickingTexture = new PickingTexture(3840, 2160);
-        glViewport(0, 0, 3840, 2160);
+        // The scene is drawn at the internal resolution and scaled up to the window, release builds never pick objects
+        RenderResolution.setMode(RESOLUTION_MODE);
+        RenderResolution.resize(this.width, this.height);
+        this.framebuffer = new Framebuffer(RenderResolution.getTargetWidth(), RenderResolution.getTargetHeight());
+        if (!RELEASE_BUILD && GPU_PICKING) {
+            this.pickingTexture = new PickingTexture(RenderResolution.getTargetWidth(), RenderResolution.getTargetHeight());
+        }
 
         // NOTE: If we're building for release, we want to skip any imgui things
         if (RELEASE_BUILD) {
             runtimePlaying = true;
             Window.changeScene(new LevelSceneInitializer());
         } else {
-            this.imguiLayer = new ImGuiLayer(glfwWindow, pickingTexture);
+            Picker picker = GPU_PICKING ? new GpuPicker(pickingTexture) : new SpatialPicker();
+            this.imguiLayer = new ImGuiLayer(glfwWindow, picker);
             this.imguiLayer.initImGui();
             Window.changeScene(new LevelEditorSceneInitializer());
         }
@@ -186,59 +201,27 @@ public class Window implements Observer {
         float dt = -1.0f;
 
         Shader defaultShader = AssetPool.getShader("assets/shaders/default.glsl");
-        Shader pickingShader = AssetPool.getShader("assets/shaders/pickingShader.glsl");
-        
+        Shader defaultInstancedShader = AssetPool.getShader("assets/shaders/defaultInstanced.glsl");
+        this.renderGraph = createRenderGraph(defaultShader, defaultInstancedShader);
 
         while (!glfwWindowShouldClose(glfwWindow)) {
             // Poll events
             glfwPollEvents();
-
-            // Render pass 1. Render to picking texture
-            glDisable(GL_BLEND);
-            pickingTexture.enableWriting();
-
-            glViewport(0, 0, 3840, 2160);
-            glClearColor(0, 0, 0, 0);
-            glClear(GL_COLOR_BUFFER_BIT | GL_DEPTH_BUFFER_BIT);
-
-            Renderer.bindShader(pickingShader);
-            currentScene.render();
-
-            pickingTexture.disableWriting();
-            glEnable(GL_BLEND);
-
-            // Render pass 2. Render actual game
+            resizeTargets();
+            RenderStats.beginFrame();
             DebugDraw.beginFrame();
-
-            this.framebuffer.bind();
-            Vector4f clearColor = currentScene.camera().clearColor;
-            glClearColor(clearColor.x, clearColor.y, clearColor.z, clearColor.w);
-            glClear(GL_COLOR_BUFFER_BIT);
+            if (pickingTexture != null) {
+                pickingTexture.pollReads();
+            }
 
             if (dt >= 0) {
-                Renderer.bindShader(defaultShader);
                 if (runtimePlaying) {
                     currentScene.update(dt);
                 } else {
                     currentScene.editorUpdate(dt);
                 }
-                currentScene.render();
-                DebugDraw.draw();
-            }
-            this.framebuffer.unbind();
-
-            if (RELEASE_BUILD) {
-                // NOTE: This is the most complicated piece for release builds. In release builds
-                //       we want to just blit the framebuffer to the main window so we can see the game
-                //
-                //       In non-release builds, we usually draw the framebuffer to an ImGui component as an image.
-                glBindFramebuffer(GL_READ_FRAMEBUFFER, framebuffer.getFboID());
-                glBindFramebuffer(GL_DRAW_FRAMEBUFFER, 0);
-                glBlitFramebuffer(0, 0, framebuffer.width, framebuffer.height, 0, 0, this.width, this.height,
-                        GL_COLOR_BUFFER_BIT, GL_NEAREST);
-            } else {
-                this.imguiLayer.update(dt, currentScene);
             }
+            renderGraph.execute(dt);
 
             KeyListener.endFrame();
             MouseListener.endFrame();
@@ -250,12 +233,108 @@ public class Window implements Observer {
         }
     }
 
+    private void resizeTargets() {
+        if (!RenderResolution.resize(this.width, this.height)) {
+            return;
+        }
+
+        int targetWidth = RenderResolution.getTargetWidth();
+        int targetHeight = RenderResolution.getTargetHeight();
+        framebuffer.destroy();
+        framebuffer = new Framebuffer(targetWidth, targetHeight);
+        if (pickingTexture != null) {
+            pickingTexture.resize(targetWidth, targetHeight);
+        }
+    }
+
+    private RenderGraph createRenderGraph(Shader defaultShader, Shader defaultInstancedShader) {
+        RenderGraph graph = new RenderGraph();
+
+        // The picking texture is not a pass, it draws the ids itself when MouseControls reads it
+        graph.addPass(new RenderPass("Scene") {
+            @Override
+            public void execute(float dt) {
+                framebuffer.bind();
+                glViewport(0, 0, RenderResolution.getViewportWidth(), RenderResolution.getViewportHeight());
+                Vector4f clearColor = currentScene.camera().clearColor;
+                glClearColor(clearColor.x, clearColor.y, clearColor.z, clearColor.w);
+                glClear(GL_COLOR_BUFFER_BIT);
+
+                RenderResolution.beginSceneTiming();
+                Renderer.bindShader(defaultShader, defaultInstancedShader);
+                currentScene.render();
+                RenderResolution.endSceneTiming();
+            }
+        }.writes("sceneColor"));
+
+        graph.addPass(new RenderPass("Debug") {
+            @Override
+            public void execute(float dt) {
+                DebugDraw.draw();
+                framebuffer.unbind();
+            }
+        }.reads("sceneColor").writes("sceneColor"));
+
+        graph.addPass(new RenderPass("ImGui") {
+            @Override
+            public boolean isEnabled() {
+                return imguiLayer != null;
+            }
+
+            @Override
+            public void execute(float dt) {
+                imguiLayer.update(dt, currentScene);
+
+                // ImGui binds its own program, textures and vao
+                GLState.invalidate();
+            }
+        }.reads("sceneColor").writes("backbuffer"));
+
+        graph.addPass(new RenderPass("Present") {
+            @Override
+            public boolean isEnabled() {
+                // The editor shows the scene in its game view instead
+                return imguiLayer == null;
+            }
+
+            @Override
+            public void execute(float dt) {
+                // Letterbox into the window, nearest filtering keeps the pixels sharp
+                int presentWidth = Math.min(width, Math.round(height * getTargetAspectRatio()));
+                int presentHeight = Math.round(presentWidth / getTargetAspectRatio());
+                int x = (width - presentWidth) / 2;
+                int y = (height - presentHeight) / 2;
+
+                glBindFramebuffer(GL_FRAMEBUFFER, 0);
+                glViewport(0, 0, width, height);
+                glClearColor(0, 0, 0, 1);
+                glClear(GL_COLOR_BUFFER_BIT);
+
+                glBindFramebuffer(GL_READ_FRAMEBUFFER, framebuffer.getFboID());
+                glBlitFramebuffer(0, 0, RenderResolution.getViewportWidth(), RenderResolution.getViewportHeight(),
+                        x, y, x + presentWidth, y + presentHeight, GL_COLOR_BUFFER_BIT, GL_NEAREST);
+                glBindFramebuffer(GL_READ_FRAMEBUFFER, 0);
+            }
+        }.reads("sceneColor").writes("backbuffer"));
+
+        return graph;
+    }
+
+    // Size of the render targets, the space screen coordinates and picking work in
     public static int getWidth() {
-        return 3840;//get().width;
+        return RenderResolution.getTargetWidth();
     }
 
     public static int getHeight() {
-        return 2160;//get().height;
+        return RenderResolution.getTargetHeight();
+    }
+
+    public static int getWindowWidth() {
+        return get().width;
+    }
+
+    public static int getWindowHeight() {
+        return get().height;
     }
 
     public static void setWidth(int newWidth) {
@@ -270,8 +349,9 @@ public class Window implements Observer {
         return get().framebuffer;
     }
 
+    // The shape of what the camera shows, so pixels stay square when the scene is scaled up
     public static float getTargetAspectRatio() {
-        return 16.0f / 9.0f;
+        return Camera.PROJECTION_WIDTH / Camera.PROJECTION_HEIGHT;
     }
 
     public static ImGuiLayer getImguiLayer() {
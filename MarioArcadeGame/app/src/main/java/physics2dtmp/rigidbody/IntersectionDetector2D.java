@@ -244,3 +244,4 @@ public class IntersectionDetector2D {
 
         return true;
     }
+}
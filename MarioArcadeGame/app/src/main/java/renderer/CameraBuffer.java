@@ -0,0 +1,58 @@
+package renderer;
+
+import jade.Camera;
+import org.lwjgl.BufferUtils;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+
+import static renderer.RenderBackend.BufferTarget.UNIFORM;
+
+public class CameraBuffer {
+    // Shaders declare "layout (std140) uniform Camera", Shader binds that block here after linking
+    public static final String BLOCK_NAME = "Camera";
+    public static final int BINDING = 0;
+
+    // std140 block: projection, view and inverse view-projection, each a mat4 of 4 vec4 columns
+    private static final int MATRIX_BYTES = 16 * Float.BYTES;
+    static final int SIZE_BYTES = 3 * MATRIX_BYTES;
+
+    private static int uboID = -1;
+    private static ByteBuffer data = BufferUtils.createByteBuffer(SIZE_BYTES);
+    private static Camera lastCamera = null;
+    private static int lastVersion = -1;
+
+    private static void start() {
+        RenderBackend backend = Renderer.getBackend();
+        uboID = backend.createBuffer();
+        backend.bindBuffer(UNIFORM, uboID);
+        backend.bufferData(UNIFORM, SIZE_BYTES, true);
+        backend.bindBuffer(UNIFORM, 0);
+        backend.bindBufferBase(UNIFORM, BINDING, uboID);
+    }
+
+    public static void upload(Camera camera) {
+        if (uboID == -1) {
+            start();
+        }
+
+        // Nothing to do when the camera has not moved since the last upload
+        int version = camera.getVersion();
+        if (camera == lastCamera && version == lastVersion) {
+            return;
+        }
+
+        camera.getProjectionMatrix().get(0, data);
+        camera.getViewMatrix().get(MATRIX_BYTES, data);
+        camera.getInverseViewProjection().get(2 * MATRIX_BYTES, data);
+
+        RenderBackend backend = Renderer.getBackend();
+        backend.bindBuffer(UNIFORM, uboID);
+        backend.bufferSubData(UNIFORM, 0, SIZE_BYTES, MemorySegment.ofBuffer(data).address());
+        backend.bindBuffer(UNIFORM, 0);
+        RenderStats.addBytesUploaded(SIZE_BYTES);
+
+        lastCamera = camera;
+        lastVersion = version;
+    }
+}
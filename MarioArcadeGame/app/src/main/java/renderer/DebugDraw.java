@@ -5,48 +5,112 @@ import jade.Window;
 import org.joml.Vector2f;
 import org.joml.Vector3f;
 import util.AssetPool;
-import util.JMath;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
 
-import static org.lwjgl.opengl.GL15.*;
-import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL30.glBindVertexArray;
-import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static renderer.RenderBackend.AttributeType.FLOAT;
+import static renderer.RenderBackend.BufferTarget.VERTEX;
+import static renderer.RenderBackend.Primitive.LINES;
+import static renderer.RenderBackend.Primitive.TRIANGLES;
+import static renderer.RenderBackend.Primitive.TRIANGLE_STRIP;
 
 public class DebugDraw {
     private static int MAX_LINES = 5000;
+    private static int MAX_SHAPES = 20000;
+
+    // Shape kinds, matched by the debugShape2D shader
+    private static final float SHAPE_CIRCLE = 0;
+    private static final float SHAPE_BOX = 1;
+
+    // Shape instance
+    // ==============
+    // Center          Half size       Rotation   Color              Kind
+    // float, float,   float, float,   float,     float, float, float   float
+    private static final int SHAPE_FLOATS = 9;
+
+    // Lines are kept in parallel primitive arrays, live lines always fill [0, numLines)
+    private static float[] linePoints = new float[MAX_LINES * 4];
+    private static float[] lineColors = new float[MAX_LINES * 3];
+    private static int[] lineLifetimes = new int[MAX_LINES];
+    private static int numLines = 0;
 
-    private static List<Line2D> lines = new ArrayList<>();
     // 6 floats per vertex, 2 vertices per line
-    private static float[] vertexArray = new float[MAX_LINES * 6 * 2];
+    private static final long LINE_BUFFER_BYTES = (long)MAX_LINES * 6 * 2 * Float.BYTES;
     private static Shader shader = AssetPool.getShader("assets/shaders/debugLine2D.glsl");
 
+    // Circles and boxes are one instance each, stored in the layout they are uploaded in
+    private static float[] shapeData = new float[MAX_SHAPES * SHAPE_FLOATS];
+    private static int[] shapeLifetimes = new int[MAX_SHAPES];
+    private static int numShapes = 0;
+    private static final long SHAPE_BUFFER_BYTES = (long)MAX_SHAPES * SHAPE_FLOATS * Float.BYTES;
+    private static Shader shapeShader = AssetPool.getShader("assets/shaders/debugShape2D.glsl");
+
+    // The editor grid is one full screen pass, requested again every frame it should show
+    private static Shader gridShader = AssetPool.getShader("assets/shaders/debugGrid.glsl");
+    private static boolean gridRequested = false;
+    private static Vector2f gridSize = new Vector2f();
+    private static Vector3f gridColor = new Vector3f();
+
+    private static final Vector3f DEFAULT_COLOR = new Vector3f(0, 1, 0);
+
+    // Staging memory comes from the current scene's arena and is allocated again after a scene change.
+    // Line vertices are written into it with MemorySegment.set, shapes are copied in with MemorySegment.copy
+    private static Arena stagingArena;
+    private static MemorySegment lineStaging;
+    private static MemorySegment shapeStaging;
+
+    // Camera area lines have to touch to be kept, updated once per frame
+    private static float viewMinX, viewMinY, viewMaxX, viewMaxY;
+
     private static int vaoID;
     private static int vboID;
+    private static int shapeVaoID;
+    private static int shapeVboID;
+    private static int gridVaoID;
 
     private static boolean started = false;
 
     public static void start() {
+        RenderBackend backend = Renderer.getBackend();
+
         // Generate the vao
-        vaoID = glGenVertexArrays();
-        glBindVertexArray(vaoID);
+        vaoID = backend.createVertexArray();
+        GLState.bindVertexArray(vaoID);
 
         // Create the vbo and buffer some memory
-        vboID = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vboID);
-        glBufferData(GL_ARRAY_BUFFER, vertexArray.length * Float.BYTES, GL_DYNAMIC_DRAW);
+        vboID = backend.createBuffer();
+        backend.bindBuffer(VERTEX, vboID);
+        backend.bufferData(VERTEX, LINE_BUFFER_BYTES, true);
 
         // Enable the vertex array attributes
-        glVertexAttribPointer(0, 3, GL_FLOAT, false, 6 * Float.BYTES, 0);
-        glEnableVertexAttribArray(0);
-
-        glVertexAttribPointer(1, 3, GL_FLOAT, false, 6 * Float.BYTES, 3 * Float.BYTES);
-        glEnableVertexAttribArray(1);
-
-        glLineWidth(2.0f);
+        backend.vertexAttribute(0, 3, FLOAT, false, 6 * Float.BYTES, 0);
+        backend.vertexAttribute(1, 3, FLOAT, false, 6 * Float.BYTES, 3 * Float.BYTES);
+
+        backend.setLineWidth(2.0f);
+
+        // The grid has no vertex data, but drawing still needs a vao bound
+        gridVaoID = backend.createVertexArray();
+
+        // Shapes are a quad per instance, the corners come from gl_VertexID
+        shapeVaoID = backend.createVertexArray();
+        GLState.bindVertexArray(shapeVaoID);
+
+        shapeVboID = backend.createBuffer();
+        backend.bindBuffer(VERTEX, shapeVboID);
+        backend.bufferData(VERTEX, SHAPE_BUFFER_BYTES, true);
+
+        int stride = SHAPE_FLOATS * Float.BYTES;
+        backend.vertexAttribute(0, 2, FLOAT, false, stride, 0);
+        backend.vertexAttribute(1, 2, FLOAT, false, stride, 2 * Float.BYTES);
+        backend.vertexAttribute(2, 1, FLOAT, false, stride, 4 * Float.BYTES);
+        backend.vertexAttribute(3, 3, FLOAT, false, stride, 5 * Float.BYTES);
+        backend.vertexAttribute(4, 1, FLOAT, false, stride, 8 * Float.BYTES);
+        for (int i=0; i <= 4; i++) {
+            backend.vertexAttributeDivisor(i, 1);
+        }
+        GLState.bindVertexArray(0);
     }
 
     public static void beginFrame() {
@@ -55,97 +119,207 @@ public class DebugDraw {
             started = true;
         }
 
-        // Remove dead lines
-        for (int i=0; i < lines.size(); i++) {
-            if (lines.get(i).beginFrame() < 0) {
-                lines.remove(i);
-                i--;
+        // Remove dead lines by moving the live ones down, keeping their order
+        int live = 0;
+        for (int i=0; i < numLines; i++) {
+            lineLifetimes[i]--;
+            if (lineLifetimes[i] <= 0) {
+                continue;
+            }
+
+            if (live != i) {
+                System.arraycopy(linePoints, i * 4, linePoints, live * 4, 4);
+                System.arraycopy(lineColors, i * 3, lineColors, live * 3, 3);
+                lineLifetimes[live] = lineLifetimes[i];
+            }
+            live++;
+        }
+        numLines = live;
+
+        live = 0;
+        for (int i=0; i < numShapes; i++) {
+            shapeLifetimes[i]--;
+            if (shapeLifetimes[i] <= 0) {
+                continue;
+            }
+
+            if (live != i) {
+                System.arraycopy(shapeData, i * SHAPE_FLOATS, shapeData, live * SHAPE_FLOATS, SHAPE_FLOATS);
+                shapeLifetimes[live] = shapeLifetimes[i];
             }
+            live++;
         }
+        numShapes = live;
+        gridRequested = false;
+
+        Camera camera = Window.getScene().camera();
+        viewMinX = camera.position.x - 2.0f;
+        viewMinY = camera.position.y - 2.0f;
+        viewMaxX = camera.position.x + camera.getProjectionSize().x * camera.getZoom() + 4.0f;
+        viewMaxY = camera.position.y + camera.getProjectionSize().y * camera.getZoom() + 4.0f;
     }
-    
 
- public static void addLine2D(Vector2f from, Vector2f to) {
-        // TODO: ADD CONSTANTS FOR COMMON COLORS
-        addLine2D(from, to, new Vector3f(0, 1, 0), 1);
+    public static void draw() {
+        // The scene may have changed since the last frame, which closed the old arena
+        Arena arena = Window.getScene().getArena();
+        if (arena != stagingArena) {
+            lineStaging = arena.allocate(LINE_BUFFER_BYTES, Float.BYTES);
+            shapeStaging = arena.allocate(SHAPE_BUFFER_BYTES, Float.BYTES);
+            stagingArena = arena;
+        }
+
+        drawGrid();
+        drawLines();
+        drawShapes();
     }
 
-    public static void addLine2D(Vector2f from, Vector2f to, Vector3f color) {
-        addLine2D(from, to, color, 1);
+    private static void drawGrid() {
+        if (!gridRequested) return;
+
+        gridShader.use();
+        gridShader.uploadVec2f("uGridSize", gridSize);
+        gridShader.uploadVec3f("uColor", gridColor);
+
+        GLState.bindVertexArray(gridVaoID);
+        Renderer.getBackend().drawArrays(TRIANGLES, 0, 3);
     }
-    
-public static void draw() {
-        if (lines.size() <= 0) return;
 
-        int index = 0;
-        for (Line2D line : lines) {
-            for (int i=0; i < 2; i++) {
-                Vector2f position = i == 0 ? line.getFrom() : line.getTo();
-                Vector3f color = line.getColor();
+    private static void drawLines() {
+        if (numLines <= 0) return;
 
+        long offset = 0;
+        for (int i=0; i < numLines; i++) {
+            float r = lineColors[i * 3];
+            float g = lineColors[i * 3 + 1];
+            float b = lineColors[i * 3 + 2];
+            for (int j=0; j < 2; j++) {
                 // Load position
-                vertexArray[index] = position.x;
-                vertexArray[index + 1] = position.y;
-                vertexArray[index + 2] = -10.0f;
+                lineStaging.set(ValueLayout.JAVA_FLOAT, offset, linePoints[i * 4 + j * 2]);
+                lineStaging.set(ValueLayout.JAVA_FLOAT, offset + 4, linePoints[i * 4 + j * 2 + 1]);
+                lineStaging.set(ValueLayout.JAVA_FLOAT, offset + 8, -10.0f);
 
                 // Load the color
-                vertexArray[index + 3] = color.x;
-                vertexArray[index + 4] = color.y;
-                vertexArray[index + 5] = color.z;
-                index += 6;
+                lineStaging.set(ValueLayout.JAVA_FLOAT, offset + 12, r);
+                lineStaging.set(ValueLayout.JAVA_FLOAT, offset + 16, g);
+                lineStaging.set(ValueLayout.JAVA_FLOAT, offset + 20, b);
+                offset += 6 * Float.BYTES;
             }
         }
 
-        glBindBuffer(GL_ARRAY_BUFFER, vboID);
-        glBufferData(GL_ARRAY_BUFFER, vertexArray, GL_DYNAMIC_DRAW);
+        // Only the live lines are uploaded, straight from the staging address
+        Renderer.getBackend().bindBuffer(VERTEX, vboID);
+        Renderer.getBackend().bufferSubData(VERTEX, 0, offset, lineStaging.address());
+        RenderStats.addBytesUploaded(offset);
 
         // Use our shader
         shader.use();
-        shader.uploadMat4f("uProjection", Window.getScene().camera().getProjectionMatrix());
-        shader.uploadMat4f("uView", Window.getScene().camera().getViewMatrix());
 
-        // Bind the vao
-        glBindVertexArray(vaoID);
-        glEnableVertexAttribArray(0);
-        glEnableVertexAttribArray(1);
+        // Bind the vao, its attributes were enabled once in start()
+        GLState.bindVertexArray(vaoID);
+
+        // Draw the batch, 2 vertices per line
+        Renderer.getBackend().drawArrays(LINES, 0, numLines * 2);
+    }
+
+    private static void drawShapes() {
+        if (numShapes <= 0) return;
+
+        int count = numShapes * SHAPE_FLOATS;
+        MemorySegment.copy(shapeData, 0, shapeStaging, ValueLayout.JAVA_FLOAT, 0, count);
+
+        long bytes = (long)count * Float.BYTES;
+        Renderer.getBackend().bindBuffer(VERTEX, shapeVboID);
+        Renderer.getBackend().bufferSubData(VERTEX, 0, bytes, shapeStaging.address());
+        RenderStats.addBytesUploaded(bytes);
 
-        // Draw the batch
-        glDrawArrays(GL_LINES, 0, lines.size());
+        // Outlines are a fixed number of pixels wide whatever the zoom
+        Camera camera = Window.getScene().camera();
+        int viewportWidth = Renderer.getBackend().getViewportWidth();
+        float pixelSize = camera.getProjectionSize().x * camera.getZoom() / Math.max(1, viewportWidth);
 
-        // Disable Location
-        glDisableVertexAttribArray(0);
-        glDisableVertexAttribArray(1);
-        glBindVertexArray(0);
+        shapeShader.use();
+        shapeShader.uploadFloat("uPixelSize", pixelSize);
 
-        // Unbind shader
-        shader.detach();
+        GLState.bindVertexArray(shapeVaoID);
+        Renderer.getBackend().drawArraysInstanced(TRIANGLE_STRIP, 4, numShapes);
     }
 
     // ==================================================
     // Add line2D methods
     // ==================================================
+    public static void addLine2D(Vector2f from, Vector2f to) {
+        addLine2D(from, to, DEFAULT_COLOR, 1);
+    }
+
+    public static void addLine2D(Vector2f from, Vector2f to, Vector3f color) {
+        addLine2D(from, to, color, 1);
+    }
 
     public static void addLine2D(Vector2f from, Vector2f to, Vector3f color, int lifetime) {
-        Camera camera = Window.getScene().camera();
-        Vector2f cameraLeft = new Vector2f(camera.position).add(new Vector2f(-2.0f, -2.0f));
-        Vector2f cameraRight = new Vector2f(camera.position).
-                add(new Vector2f(camera.getProjectionSize()).mul(camera.getZoom())).
-                add(new Vector2f(4.0f, 4.0f));
+        addLine2D(from.x, from.y, to.x, to.y, color.x, color.y, color.z, lifetime);
+    }
+
+    public static void addLine2D(float fromX, float fromY, float toX, float toY,
+                                 float r, float g, float b, int lifetime) {
         boolean lineInView =
-                ((from.x >= cameraLeft.x && from.x <= cameraRight.x) && (from.y >= cameraLeft.y && from.y <= cameraRight.y)) ||
-                ((to.x >= cameraLeft.x && to.x <= cameraRight.x) && (to.y >= cameraLeft.y && to.y <= cameraRight.y));
-        if (lines.size() >= MAX_LINES || !lineInView) {
+                ((fromX >= viewMinX && fromX <= viewMaxX) && (fromY >= viewMinY && fromY <= viewMaxY)) ||
+                ((toX >= viewMinX && toX <= viewMaxX) && (toY >= viewMinY && toY <= viewMaxY));
+        if (numLines >= MAX_LINES || !lineInView) {
+            return;
+        }
+
+        int index = numLines++;
+        linePoints[index * 4] = fromX;
+        linePoints[index * 4 + 1] = fromY;
+        linePoints[index * 4 + 2] = toX;
+        linePoints[index * 4 + 3] = toY;
+        lineColors[index * 3] = r;
+        lineColors[index * 3 + 1] = g;
+        lineColors[index * 3 + 2] = b;
+        lineLifetimes[index] = lifetime;
+    }
+
+    // ==================================================
+    // Grid methods
+    // ==================================================
+    public static void addGrid(float cellWidth, float cellHeight, float r, float g, float b) {
+        gridRequested = true;
+        gridSize.set(cellWidth, cellHeight);
+        gridColor.set(r, g, b);
+    }
+
+    // ==================================================
+    // Add shape methods
+    // ==================================================
+    private static void addShape(float kind, float centerX, float centerY, float halfWidth, float halfHeight,
+                                 float rotation, float r, float g, float b, int lifetime) {
+        // Cull with the circle around the shape, so rotation never matters
+        float extent = Math.max(Math.abs(halfWidth), Math.abs(halfHeight)) * 1.415f;
+        boolean shapeInView = centerX + extent >= viewMinX && centerX - extent <= viewMaxX &&
+                centerY + extent >= viewMinY && centerY - extent <= viewMaxY;
+        if (numShapes >= MAX_SHAPES || !shapeInView) {
             return;
         }
-        DebugDraw.lines.add(new Line2D(from, to, color, lifetime));
+
+        int index = numShapes++;
+        int offset = index * SHAPE_FLOATS;
+        shapeData[offset] = centerX;
+        shapeData[offset + 1] = centerY;
+        shapeData[offset + 2] = halfWidth;
+        shapeData[offset + 3] = halfHeight;
+        shapeData[offset + 4] = (float)Math.toRadians(rotation);
+        shapeData[offset + 5] = r;
+        shapeData[offset + 6] = g;
+        shapeData[offset + 7] = b;
+        shapeData[offset + 8] = kind;
+        shapeLifetimes[index] = lifetime;
     }
 
     // ==================================================
     // Add Box2D methods
     // ==================================================
     public static void addBox2D(Vector2f center, Vector2f dimensions, float rotation) {
-        // TODO: ADD CONSTANTS FOR COMMON COLORS
-        addBox2D(center, dimensions, rotation, new Vector3f(0, 1, 0), 1);
+        addBox2D(center, dimensions, rotation, DEFAULT_COLOR, 1);
     }
 
     public static void addBox2D(Vector2f center, Vector2f dimensions, float rotation, Vector3f color) {
@@ -154,32 +328,20 @@ public static void draw() {
 
     public static void addBox2D(Vector2f center, Vector2f dimensions, float rotation,
                                 Vector3f color, int lifetime) {
-        Vector2f min = new Vector2f(center).sub(new Vector2f(dimensions).mul(0.5f));
-        Vector2f max = new Vector2f(center).add(new Vector2f(dimensions).mul(0.5f));
-
-        Vector2f[] vertices = {
-              new Vector2f(min.x, min.y), new Vector2f(min.x, max.y),
-              new Vector2f(max.x, max.y), new Vector2f(max.x, min.y)
-        };
-
-        if (rotation != 0.0f) {
-            for (Vector2f vert : vertices) {
-                JMath.rotate(vert, rotation, center);
-            }
-        }
+        addBox2D(center.x, center.y, dimensions.x, dimensions.y, rotation,
+                color.x, color.y, color.z, lifetime);
+    }
 
-        addLine2D(vertices[0], vertices[1], color, lifetime);
-        addLine2D(vertices[0], vertices[3], color, lifetime);
-        addLine2D(vertices[1], vertices[2], color, lifetime);
-        addLine2D(vertices[2], vertices[3], color, lifetime);
+    public static void addBox2D(float centerX, float centerY, float width, float height, float rotation,
+                                float r, float g, float b, int lifetime) {
+        addShape(SHAPE_BOX, centerX, centerY, width * 0.5f, height * 0.5f, rotation, r, g, b, lifetime);
     }
 
     // ==================================================
     // Add Circle methods
     // ==================================================
     public static void addCircle(Vector2f center, float radius) {
-        // TODO: ADD CONSTANTS FOR COMMON COLORS
-        addCircle(center, radius, new Vector3f(0, 1, 0), 1);
+        addCircle(center, radius, DEFAULT_COLOR, 1);
     }
 
     public static void addCircle(Vector2f center, float radius, Vector3f color) {
@@ -187,22 +349,11 @@ public static void draw() {
     }
 
     public static void addCircle(Vector2f center, float radius, Vector3f color, int lifetime) {
-        Vector2f[] points = new Vector2f[20];
-        int increment = 360 / points.length;
-        int currentAngle = 0;
-
-        for (int i=0; i < points.length; i++) {
-            Vector2f tmp = new Vector2f(0, radius);
-            JMath.rotate(tmp, currentAngle, new Vector2f());
-            points[i] = new Vector2f(tmp).add(center);
-
-            if (i > 0) {
-                addLine2D(points[i - 1], points[i], color, lifetime);
-            }
-            currentAngle += increment;
-        }
+        addCircle(center.x, center.y, radius, color.x, color.y, color.z, lifetime);
+    }
 
-        addLine2D(points[points.length - 1], points[0], color, lifetime);
+    public static void addCircle(float centerX, float centerY, float radius,
+                                 float r, float g, float b, int lifetime) {
+        addShape(SHAPE_CIRCLE, centerX, centerY, radius, radius, 0, r, g, b, lifetime);
     }
 }
-
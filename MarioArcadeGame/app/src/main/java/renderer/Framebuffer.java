@@ -4,6 +4,7 @@ import static org.lwjgl.opengl.GL30.*;
 
 public class Framebuffer {
     private int fboID = 0;
+    private int rboID = 0;
     private Texture texture = null;
 
     public int width, height;
@@ -22,7 +23,7 @@ public class Framebuffer {
                 this.texture.getId(), 0);
 
         // Create renderbuffer store the depth info
-        int rboID = glGenRenderbuffers();
+        rboID = glGenRenderbuffers();
         glBindRenderbuffer(GL_RENDERBUFFER, rboID);
         glRenderbufferStorage(GL_RENDERBUFFER, GL_DEPTH_COMPONENT32, width, height);
         glFramebufferRenderbuffer(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT, GL_RENDERBUFFER, rboID);
@@ -33,6 +34,15 @@ public class Framebuffer {
         glBindFramebuffer(GL_FRAMEBUFFER, 0);
     }
 
+    // Frees the GPU memory, the framebuffer cannot be used afterwards
+    public void destroy() {
+        glDeleteFramebuffers(fboID);
+        glDeleteRenderbuffers(rboID);
+        texture.delete();
+        fboID = 0;
+        rboID = 0;
+    }
+
     public void bind() {
         glBindFramebuffer(GL_FRAMEBUFFER, fboID);
     }
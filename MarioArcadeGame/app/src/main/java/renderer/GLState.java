@@ -0,0 +1,88 @@
+package renderer;
+
+import java.util.Arrays;
+
+public class GLState {
+    private static final int MAX_TEXTURE_UNITS = 32;
+    private static final int UNKNOWN = -1;
+
+    // What we last told the driver, UNKNOWN until the first bind after an invalidate
+    private static int program = UNKNOWN;
+    private static int vertexArray = UNKNOWN;
+    private static int activeUnit = UNKNOWN;
+    private static int[] boundTextures = new int[MAX_TEXTURE_UNITS];
+
+    static {
+        Arrays.fill(boundTextures, UNKNOWN);
+    }
+
+    public static void useProgram(int id) {
+        if (program == id) {
+            RenderStats.addGLCallSaved();
+            return;
+        }
+        Renderer.getBackend().useProgram(id);
+        program = id;
+    }
+
+    public static void bindVertexArray(int id) {
+        if (vertexArray == id) {
+            RenderStats.addGLCallSaved();
+            return;
+        }
+        Renderer.getBackend().bindVertexArray(id);
+        vertexArray = id;
+    }
+
+    public static void activeTexture(int unit) {
+        if (activeUnit == unit) {
+            RenderStats.addGLCallSaved();
+            return;
+        }
+        Renderer.getBackend().activeTexture(unit);
+        activeUnit = unit;
+    }
+
+    public static void bindTexture(int unit, int texId) {
+        if (boundTextures[unit] == texId) {
+            // The active unit only matters for the bind, so it is skipped as well
+            RenderStats.addGLCallSaved(2);
+            return;
+        }
+        activeTexture(unit);
+        Renderer.getBackend().bindTexture(texId);
+        boundTextures[unit] = texId;
+    }
+
+    // Binds to whichever unit is active, used when creating and filling textures
+    public static void bindTexture(int texId) {
+        if (activeUnit == UNKNOWN) {
+            activeTexture(0);
+        }
+        bindTexture(activeUnit, texId);
+    }
+
+    // The driver unbinds a deleted texture from every unit
+    public static void textureDeleted(int texId) {
+        for (int i=0; i < MAX_TEXTURE_UNITS; i++) {
+            if (boundTextures[i] == texId) {
+                boundTextures[i] = 0;
+            }
+        }
+    }
+
+    // The driver unbinds a deleted vertex array, and may hand its id out again
+    public static void vertexArrayDeleted(int id) {
+        if (vertexArray == id) {
+            vertexArray = 0;
+        }
+    }
+
+    // Call after code that talks to GL without going through here, such as ImGui
+    public static void invalidate() {
+        program = UNKNOWN;
+        vertexArray = UNKNOWN;
+        activeUnit = UNKNOWN;
+        Arrays.fill(boundTextures, UNKNOWN);
+    }
+}
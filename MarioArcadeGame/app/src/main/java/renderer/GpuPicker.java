@@ -0,0 +1,49 @@
+package renderer;
+
+import components.NonPickable;
+import jade.GameObject;
+import jade.Window;
+import org.joml.Vector2i;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+public class GpuPicker implements Picker {
+    private PickingTexture pickingTexture;
+
+    public GpuPicker(PickingTexture pickingTexture) {
+        this.pickingTexture = pickingTexture;
+    }
+
+    @Override
+    public GameObject pick(int x, int y) {
+        GameObject pickedObj = Window.getScene().getGameObject(pickingTexture.readPixel(x, y));
+        if (pickedObj != null && pickedObj.getComponent(NonPickable.class) == null) {
+            return pickedObj;
+        }
+
+        return null;
+    }
+
+    @Override
+    public CompletableFuture<List<GameObject>> pickRect(Vector2i start, Vector2i end) {
+        return pickingTexture.readPixelsAsync(start, end).thenApply(gameObjectIds -> {
+            Set<Integer> uniqueGameObjectIds = new HashSet<>();
+            for (int objId : gameObjectIds) {
+                uniqueGameObjectIds.add(objId);
+            }
+
+            List<GameObject> pickedObjs = new ArrayList<>();
+            for (Integer gameObjectId : uniqueGameObjectIds) {
+                GameObject pickedObj = Window.getScene().getGameObject(gameObjectId);
+                if (pickedObj != null && pickedObj.getComponent(NonPickable.class) == null) {
+                    pickedObjs.add(pickedObj);
+                }
+            }
+            return pickedObjs;
+        });
+    }
+}
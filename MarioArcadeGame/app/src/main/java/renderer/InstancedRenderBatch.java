@@ -0,0 +1,135 @@
+package renderer;
+
+import components.SpriteRenderer;
+import jade.Transform;
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+import renderer.RenderBackend.AttributeType;
+
+import static renderer.RenderBackend.AttributeType.UNSIGNED_BYTE;
+import static renderer.RenderBackend.AttributeType.UNSIGNED_INT;
+import static renderer.RenderBackend.AttributeType.UNSIGNED_SHORT;
+import static renderer.RenderBackend.BufferTarget.VERTEX;
+import static renderer.RenderBackend.Primitive.TRIANGLE_STRIP;
+import static renderer.SpriteVertexBuilder.BYTE;
+import static renderer.SpriteVertexBuilder.FLOAT;
+import static renderer.SpriteVertexBuilder.INT;
+import static renderer.SpriteVertexBuilder.SHORT;
+import static renderer.SpriteVertexBuilder.toUnsignedByte;
+import static renderer.SpriteVertexBuilder.toUnsignedShort;
+
+public class InstancedRenderBatch extends RenderBatch {
+    // Instance
+    // ========
+    // Pos             Scale           Rotation   UV rect (min, max)    Color        Entity id   Tex id
+    // float, float,   float, float,   float,     4 x ushort            4 x ubyte    uint        ubyte + 3 padding
+    private final int POS_OFFSET = 0;
+    private final int SCALE_OFFSET = POS_OFFSET + 2 * Float.BYTES;
+    private final int ROTATION_OFFSET = SCALE_OFFSET + 2 * Float.BYTES;
+    private final int UV_RECT_OFFSET = ROTATION_OFFSET + Float.BYTES;
+    private final int COLOR_OFFSET = UV_RECT_OFFSET + 4 * Short.BYTES;
+    private final int ENTITY_ID_OFFSET = COLOR_OFFSET + 4;
+    private final int TEX_ID_OFFSET = ENTITY_ID_OFFSET + Integer.BYTES;
+    private final int INSTANCE_SIZE_BYTES = TEX_ID_OFFSET + 4;
+
+    // First sprite the attributes point at, moved to the streaming segment that is drawn
+    private int attributeFirstSprite = -1;
+
+    public InstancedRenderBatch(int maxBatchSize, int zIndex, boolean isStatic, Renderer renderer) {
+        super(maxBatchSize, zIndex, isStatic, renderer);
+    }
+
+    @Override
+    protected void setupAttributes() {
+        // The quad corners are generated from gl_VertexID, every attribute advances once per sprite
+        pointAttributes(0);
+        for (int i=0; i <= 6; i++) {
+            Renderer.getBackend().vertexAttributeDivisor(i, 1);
+        }
+    }
+
+    // Needs the vertex array and the instance buffer bound
+    private void pointAttributes(int firstSprite) {
+        RenderBackend backend = Renderer.getBackend();
+        long base = (long)firstSprite * INSTANCE_SIZE_BYTES;
+        backend.vertexAttribute(0, 2, AttributeType.FLOAT, false, INSTANCE_SIZE_BYTES, base + POS_OFFSET);
+        backend.vertexAttribute(1, 2, AttributeType.FLOAT, false, INSTANCE_SIZE_BYTES, base + SCALE_OFFSET);
+        backend.vertexAttribute(2, 1, AttributeType.FLOAT, false, INSTANCE_SIZE_BYTES, base + ROTATION_OFFSET);
+        backend.vertexAttribute(3, 4, UNSIGNED_SHORT, true, INSTANCE_SIZE_BYTES, base + UV_RECT_OFFSET);
+        backend.vertexAttribute(4, 4, UNSIGNED_BYTE, true, INSTANCE_SIZE_BYTES, base + COLOR_OFFSET);
+        backend.vertexAttributeInt(5, 1, UNSIGNED_INT, INSTANCE_SIZE_BYTES, base + ENTITY_ID_OFFSET);
+        backend.vertexAttributeInt(6, 1, UNSIGNED_BYTE, INSTANCE_SIZE_BYTES, base + TEX_ID_OFFSET);
+        attributeFirstSprite = firstSprite;
+    }
+
+    @Override
+    protected Shader getShader() {
+        return Renderer.getBoundInstancedShader();
+    }
+
+    @Override
+    protected int getShaderKey() {
+        return 1;
+    }
+
+    @Override
+    protected void drawSprites(int firstSprite, int count) {
+        // The attributes are pointed at the streaming segment, a base instance would need GL 4.2
+        if (firstSprite != attributeFirstSprite) {
+            Renderer.getBackend().bindBuffer(VERTEX, getVboID());
+            pointAttributes(firstSprite);
+        }
+        Renderer.getBackend().drawArraysInstanced(TRIANGLE_STRIP, 4, count);
+    }
+
+    @Override
+    protected boolean cullsSprites() {
+        // Instances are read in order, so only whole batches can be skipped
+        return false;
+    }
+
+    @Override
+    protected int getSpriteSizeBytes() {
+        return INSTANCE_SIZE_BYTES;
+    }
+
+    @Override
+    protected void loadVertexProperties(int index) {
+        SpriteRenderer sprite = this.sprites[index];
+        Transform transform = sprite.gameObject.transform;
+        long offset = (long)index * INSTANCE_SIZE_BYTES;
+
+        FLOAT.set(vertexData, offset + POS_OFFSET, transform.position.x);
+        FLOAT.set(vertexData, offset + POS_OFFSET + 4, transform.position.y);
+        FLOAT.set(vertexData, offset + SCALE_OFFSET, transform.scale.x);
+        FLOAT.set(vertexData, offset + SCALE_OFFSET + 4, transform.scale.y);
+        FLOAT.set(vertexData, offset + ROTATION_OFFSET, (float)Math.toRadians(transform.rotation));
+
+        // Corner 2 is the bottom left and corner 0 the top right of the sprite
+        Vector2f[] texCoords = sprite.getTexCoords();
+        float uMin = texCoords[2].x;
+        float vMin = texCoords[2].y;
+        float uMax = texCoords[0].x;
+        float vMax = texCoords[0].y;
+        Vector4f atlasRegion = getCachedAtlasRegion(index);
+        if (atlasRegion != null) {
+            uMin = atlasRegion.x + uMin * atlasRegion.z;
+            vMin = atlasRegion.y + vMin * atlasRegion.w;
+            uMax = atlasRegion.x + uMax * atlasRegion.z;
+            vMax = atlasRegion.y + vMax * atlasRegion.w;
+        }
+        SHORT.set(vertexData, offset + UV_RECT_OFFSET, toUnsignedShort(uMin));
+        SHORT.set(vertexData, offset + UV_RECT_OFFSET + 2, toUnsignedShort(vMin));
+        SHORT.set(vertexData, offset + UV_RECT_OFFSET + 4, toUnsignedShort(uMax));
+        SHORT.set(vertexData, offset + UV_RECT_OFFSET + 6, toUnsignedShort(vMax));
+
+        Vector4f color = sprite.getColor();
+        BYTE.set(vertexData, offset + COLOR_OFFSET, toUnsignedByte(color.x));
+        BYTE.set(vertexData, offset + COLOR_OFFSET + 1, toUnsignedByte(color.y));
+        BYTE.set(vertexData, offset + COLOR_OFFSET + 2, toUnsignedByte(color.z));
+        BYTE.set(vertexData, offset + COLOR_OFFSET + 3, toUnsignedByte(color.w));
+
+        INT.set(vertexData, offset + ENTITY_ID_OFFSET, sprite.gameObject.getUid() + 1);
+        BYTE.set(vertexData, offset + TEX_ID_OFFSET, (byte)getCachedTexSlot(index));
+    }
+}
@@ -0,0 +1,350 @@
+package renderer;
+
+import org.lwjgl.BufferUtils;
+import org.lwjgl.opengl.GL;
+import org.lwjgl.opengl.GLCapabilities;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL12.GL_CLAMP_TO_EDGE;
+import static org.lwjgl.opengl.GL13.GL_TEXTURE0;
+import static org.lwjgl.opengl.GL13.glActiveTexture;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL20.*;
+import static org.lwjgl.opengl.GL30.*;
+import static org.lwjgl.opengl.GL31.*;
+import static org.lwjgl.opengl.GL32.*;
+import static org.lwjgl.opengl.GL33.glVertexAttribDivisor;
+import static org.lwjgl.opengl.GL44.GL_MAP_COHERENT_BIT;
+import static org.lwjgl.opengl.GL44.GL_MAP_PERSISTENT_BIT;
+import static org.lwjgl.opengl.GL44.glBufferStorage;
+
+public class LwjglBackend implements RenderBackend {
+    private final long FENCE_TIMEOUT_NS = 1_000_000;
+
+    private int[] viewport = new int[4];
+
+    private static int glTarget(BufferTarget target) {
+        switch (target) {
+            case VERTEX: return GL_ARRAY_BUFFER;
+            case INDEX: return GL_ELEMENT_ARRAY_BUFFER;
+            default: return GL_UNIFORM_BUFFER;
+        }
+    }
+
+    private static int glType(AttributeType type) {
+        switch (type) {
+            case FLOAT: return GL_FLOAT;
+            case UNSIGNED_BYTE: return GL_UNSIGNED_BYTE;
+            case UNSIGNED_SHORT: return GL_UNSIGNED_SHORT;
+            default: return GL_UNSIGNED_INT;
+        }
+    }
+
+    private static int glPrimitive(Primitive primitive) {
+        switch (primitive) {
+            case TRIANGLES: return GL_TRIANGLES;
+            case TRIANGLE_STRIP: return GL_TRIANGLE_STRIP;
+            default: return GL_LINES;
+        }
+    }
+
+    // ============================================================
+    // Buffers
+    // ============================================================
+    @Override
+    public int createBuffer() {
+        return glGenBuffers();
+    }
+
+    @Override
+    public void deleteBuffer(int buffer) {
+        glDeleteBuffers(buffer);
+    }
+
+    @Override
+    public void bindBuffer(BufferTarget target, int buffer) {
+        glBindBuffer(glTarget(target), buffer);
+    }
+
+    @Override
+    public void bindBufferBase(BufferTarget target, int binding, int buffer) {
+        glBindBufferBase(glTarget(target), binding, buffer);
+    }
+
+    @Override
+    public void bufferData(BufferTarget target, long size, boolean dynamic) {
+        glBufferData(glTarget(target), size, dynamic ? GL_DYNAMIC_DRAW : GL_STATIC_DRAW);
+    }
+
+    @Override
+    public void bufferData(BufferTarget target, short[] data) {
+        glBufferData(glTarget(target), data, GL_STATIC_DRAW);
+    }
+
+    @Override
+    public void bufferSubData(BufferTarget target, long offset, long size, long address) {
+        nglBufferSubData(glTarget(target), offset, size, address);
+    }
+
+    @Override
+    public MemorySegment mapPersistentBuffer(BufferTarget target, long size) {
+        GLCapabilities caps = GL.getCapabilities();
+        if (!caps.OpenGL44 && !caps.GL_ARB_buffer_storage) {
+            return null;
+        }
+
+        int flags = GL_MAP_WRITE_BIT | GL_MAP_PERSISTENT_BIT | GL_MAP_COHERENT_BIT;
+        glBufferStorage(glTarget(target), size, flags);
+        return MemorySegment.ofBuffer(glMapBufferRange(glTarget(target), 0, size, flags));
+    }
+
+    @Override
+    public void unmapBuffer(BufferTarget target) {
+        glUnmapBuffer(glTarget(target));
+    }
+
+    @Override
+    public long fenceSync() {
+        return glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+    }
+
+    @Override
+    public void waitSync(long fence) {
+        int status = glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, FENCE_TIMEOUT_NS);
+        while (status == GL_TIMEOUT_EXPIRED) {
+            status = glClientWaitSync(fence, GL_SYNC_FLUSH_COMMANDS_BIT, FENCE_TIMEOUT_NS);
+        }
+    }
+
+    @Override
+    public void deleteSync(long fence) {
+        glDeleteSync(fence);
+    }
+
+    // ============================================================
+    // Vertex arrays and draws
+    // ============================================================
+    @Override
+    public int createVertexArray() {
+        return glGenVertexArrays();
+    }
+
+    @Override
+    public void deleteVertexArray(int vertexArray) {
+        glDeleteVertexArrays(vertexArray);
+    }
+
+    @Override
+    public void bindVertexArray(int vertexArray) {
+        glBindVertexArray(vertexArray);
+    }
+
+    @Override
+    public void vertexAttribute(int index, int size, AttributeType type, boolean normalized, int stride, long offset) {
+        glVertexAttribPointer(index, size, glType(type), normalized, stride, offset);
+        glEnableVertexAttribArray(index);
+    }
+
+    @Override
+    public void vertexAttributeInt(int index, int size, AttributeType type, int stride, long offset) {
+        glVertexAttribIPointer(index, size, glType(type), stride, offset);
+        glEnableVertexAttribArray(index);
+    }
+
+    @Override
+    public void vertexAttributeDivisor(int index, int divisor) {
+        glVertexAttribDivisor(index, divisor);
+    }
+
+    @Override
+    public void drawElements(Primitive primitive, int indexCount, int baseVertex) {
+        glDrawElementsBaseVertex(glPrimitive(primitive), indexCount, GL_UNSIGNED_SHORT, 0, baseVertex);
+    }
+
+    @Override
+    public void drawArrays(Primitive primitive, int first, int count) {
+        glDrawArrays(glPrimitive(primitive), first, count);
+    }
+
+    @Override
+    public void drawArraysInstanced(Primitive primitive, int vertexCount, int instanceCount) {
+        glDrawArraysInstanced(glPrimitive(primitive), 0, vertexCount, instanceCount);
+    }
+
+    @Override
+    public void setLineWidth(float width) {
+        glLineWidth(width);
+    }
+
+    @Override
+    public int getViewportWidth() {
+        glGetIntegerv(GL_VIEWPORT, viewport);
+        return viewport[2];
+    }
+
+    // ============================================================
+    // Programs
+    // ============================================================
+    private static int compileShader(String name, int type, String source) {
+        int shaderID = glCreateShader(type);
+        glShaderSource(shaderID, source);
+        glCompileShader(shaderID);
+
+        if (glGetShaderi(shaderID, GL_COMPILE_STATUS) == GL_FALSE) {
+            int len = glGetShaderi(shaderID, GL_INFO_LOG_LENGTH);
+            String stage = type == GL_VERTEX_SHADER ? "Vertex" : "Fragment";
+            System.out.println("ERROR: '" + name + "'\n\t" + stage + " shader compilation failed.");
+            System.out.println(glGetShaderInfoLog(shaderID, len));
+            assert false : "";
+        }
+        return shaderID;
+    }
+
+    @Override
+    public int createProgram(String name, String vertexSource, String fragmentSource) {
+        int vertexID = compileShader(name, GL_VERTEX_SHADER, vertexSource);
+        int fragmentID = compileShader(name, GL_FRAGMENT_SHADER, fragmentSource);
+
+        // Link shaders and check for errors
+        int programID = glCreateProgram();
+        glAttachShader(programID, vertexID);
+        glAttachShader(programID, fragmentID);
+        glLinkProgram(programID);
+
+        if (glGetProgrami(programID, GL_LINK_STATUS) == GL_FALSE) {
+            int len = glGetProgrami(programID, GL_INFO_LOG_LENGTH);
+            System.out.println("ERROR: '" + name + "'\n\tLinking of shaders failed.");
+            System.out.println(glGetProgramInfoLog(programID, len));
+            assert false : "";
+        }
+        return programID;
+    }
+
+    @Override
+    public Map<String, Integer> getUniformLocations(int program) {
+        Map<String, Integer> locations = new HashMap<>();
+        int count = glGetProgrami(program, GL_ACTIVE_UNIFORMS);
+        IntBuffer size = BufferUtils.createIntBuffer(1);
+        IntBuffer type = BufferUtils.createIntBuffer(1);
+        for (int i=0; i < count; i++) {
+            String name = glGetActiveUniform(program, i, size, type);
+
+            // Arrays are reported as "name[0]", they are uploaded by their plain name
+            if (name.endsWith("[0]")) {
+                name = name.substring(0, name.length() - 3);
+            }
+
+            // Members of uniform blocks have no location
+            int location = glGetUniformLocation(program, name);
+            if (location >= 0) {
+                locations.put(name, location);
+            }
+        }
+        return locations;
+    }
+
+    @Override
+    public void bindUniformBlock(int program, String blockName, int binding) {
+        int block = glGetUniformBlockIndex(program, blockName);
+        if (block != GL_INVALID_INDEX) {
+            glUniformBlockBinding(program, block, binding);
+        }
+    }
+
+    @Override
+    public void useProgram(int program) {
+        glUseProgram(program);
+    }
+
+    @Override
+    public void uniformMatrix4(int location, float[] values) {
+        glUniformMatrix4fv(location, false, values);
+    }
+
+    @Override
+    public void uniformMatrix3(int location, float[] values) {
+        glUniformMatrix3fv(location, false, values);
+    }
+
+    @Override
+    public void uniform1f(int location, float x) {
+        glUniform1f(location, x);
+    }
+
+    @Override
+    public void uniform2f(int location, float x, float y) {
+        glUniform2f(location, x, y);
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+        glUniform3f(location, x, y, z);
+    }
+
+    @Override
+    public void uniform4f(int location, float x, float y, float z, float w) {
+        glUniform4f(location, x, y, z, w);
+    }
+
+    @Override
+    public void uniform1i(int location, int value) {
+        glUniform1i(location, value);
+    }
+
+    @Override
+    public void uniform1iv(int location, int[] values) {
+        glUniform1iv(location, values);
+    }
+
+    // ============================================================
+    // Textures
+    // ============================================================
+    @Override
+    public int createTexture() {
+        return glGenTextures();
+    }
+
+    @Override
+    public void deleteTexture(int texture) {
+        glDeleteTextures(texture);
+    }
+
+    @Override
+    public void activeTexture(int unit) {
+        glActiveTexture(GL_TEXTURE0 + unit);
+    }
+
+    @Override
+    public void bindTexture(int texture) {
+        glBindTexture(GL_TEXTURE_2D, texture);
+    }
+
+    @Override
+    public void textureImage(int width, int height, boolean alpha, boolean linear, boolean repeat, ByteBuffer pixels) {
+        int wrap = repeat ? GL_REPEAT : GL_CLAMP_TO_EDGE;
+        int filter = linear ? GL_LINEAR : GL_NEAREST;
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, wrap);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, wrap);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, filter);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, filter);
+
+        int format = alpha ? GL_RGBA : GL_RGB;
+        glTexImage2D(GL_TEXTURE_2D, 0, format, width, height, 0, format, GL_UNSIGNED_BYTE, pixels);
+    }
+
+    @Override
+    public void textureSubImage(int x, int y, int width, int height, ByteBuffer rgbaPixels) {
+        glTexSubImage2D(GL_TEXTURE_2D, 0, x, y, width, height, GL_RGBA, GL_UNSIGNED_BYTE, rgbaPixels);
+    }
+
+    @Override
+    public int getMaxTextureSize() {
+        return glGetInteger(GL_MAX_TEXTURE_SIZE);
+    }
+}
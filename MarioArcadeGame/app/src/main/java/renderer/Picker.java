@@ -0,0 +1,15 @@
+package renderer;
+
+import jade.GameObject;
+import org.joml.Vector2i;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public interface Picker {
+    // Topmost pickable object under the screen pixel, or null
+    GameObject pick(int x, int y);
+
+    // Every pickable object inside the screen rectangle
+    CompletableFuture<List<GameObject>> pickRect(Vector2i start, Vector2i end);
+}
@@ -1,51 +1,79 @@
 package renderer;
 
+import jade.Window;
 import org.joml.Vector2i;
-
-import static org.lwjgl.opengl.GL11.GL_TEXTURE_2D;
-import static org.lwjgl.opengl.GL14.GL_DEPTH_COMPONENT32;
+import util.AssetPool;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.lwjgl.opengl.GL11.*;
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL21.GL_PIXEL_PACK_BUFFER;
 import static org.lwjgl.opengl.GL30.*;
-import static org.lwjgl.opengl.GL30.GL_FRAMEBUFFER;
+import static org.lwjgl.opengl.GL32.*;
 
 public class PickingTexture {
+    private static class PixelBuffer {
+        int id;
+        long capacity;
+    }
+
+    // A readback copied into a pixel buffer, waiting for the GPU to finish it
+    private static class PendingRead {
+        PixelBuffer buffer;
+        long fence;
+        int numPixels;
+        CompletableFuture<int[]> result;
+    }
+
     private int pickingTextureId;
     private int fbo;
-    private int depthTexture;
+    private int width, height;
+
+    private Shader pickingShader;
+    private Shader pickingInstancedShader;
+    private int[] viewport = new int[4];
+
+    private Deque<PixelBuffer> freeBuffers = new ArrayDeque<>();
+    private List<PendingRead> pendingReads = new ArrayList<>();
 
     public PickingTexture(int width, int height) {
         if (!init(width, height)) {
             assert false : "Error initializing picking texture";
         }
+        this.pickingShader = AssetPool.getShader("assets/shaders/pickingShader.glsl");
+        this.pickingInstancedShader = AssetPool.getShader("assets/shaders/pickingInstanced.glsl");
     }
 
     public boolean init(int width, int height) {
+        this.width = width;
+        this.height = height;
+
         // Generate framebuffer
         fbo = glGenFramebuffers();
         glBindFramebuffer(GL_FRAMEBUFFER, fbo);
 
-        // Create the texture to render the data to, and attach it to our framebuffer
+        // Create the texture to render the ids to, and attach it to our framebuffer.
+        // Sprites are drawn in z order, so no depth buffer is needed
         pickingTextureId = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, pickingTextureId);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
+        GLState.bindTexture(pickingTextureId);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_CLAMP_TO_EDGE);
+        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_CLAMP_TO_EDGE);
         glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
         glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
-        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGB32F, width, height, 0,
-                GL_RGB, GL_FLOAT, 0);
+        glTexImage2D(GL_TEXTURE_2D, 0, GL_R32UI, width, height, 0,
+                GL_RED_INTEGER, GL_UNSIGNED_INT, 0);
         glFramebufferTexture2D(GL_FRAMEBUFFER, GL_COLOR_ATTACHMENT0, GL_TEXTURE_2D,
                 this.pickingTextureId, 0);
 
-        // Create the texture object for the depth buffer
-        glEnable(GL_TEXTURE_2D);
-        depthTexture = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, depthTexture);
-        glTexImage2D(GL_TEXTURE_2D, 0, GL_DEPTH_COMPONENT, width, height, 0,
-                GL_DEPTH_COMPONENT, GL_FLOAT, 0);
-        glFramebufferTexture2D(GL_FRAMEBUFFER, GL_DEPTH_ATTACHMENT,
-                GL_TEXTURE_2D, depthTexture, 0);
-
-        // Disable the reading
-        glReadBuffer(GL_NONE);
+        glReadBuffer(GL_COLOR_ATTACHMENT0);
         glDrawBuffer(GL_COLOR_ATTACHMENT0);
 
         if (glCheckFramebufferStatus(GL_FRAMEBUFFER) != GL_FRAMEBUFFER_COMPLETE) {
@@ -54,41 +82,159 @@ public class PickingTexture {
         }
 
         // Unbind the texture and framebuffer
-        glBindTexture(GL_TEXTURE_2D, 0);
+        GLState.bindTexture(0);
         glBindFramebuffer(GL_FRAMEBUFFER, 0);
         return true;
     }
 
-    public void enableWriting() {
-        glBindFramebuffer(GL_DRAW_FRAMEBUFFER, fbo);
+    // Allocates the id texture again at the new size, reads already copied to pixel buffers still complete
+    public void resize(int width, int height) {
+        glDeleteFramebuffers(fbo);
+        glDeleteTextures(pickingTextureId);
+        GLState.textureDeleted(pickingTextureId);
+        if (!init(width, height)) {
+            assert false : "Error resizing picking texture";
+        }
     }
 
-    public void disableWriting() {
-        glBindFramebuffer(GL_DRAW_FRAMEBUFFER, 0);
+    // Draws the scene ids into the given rectangle only, everything outside of it is left untouched
+    private void render(int x, int y, int w, int h) {
+        int previousFbo = glGetInteger(GL_DRAW_FRAMEBUFFER_BINDING);
+        glGetIntegerv(GL_VIEWPORT, viewport);
+        boolean blend = glIsEnabled(GL_BLEND);
+        Shader previousShader = Renderer.getBoundShader();
+        Shader previousInstancedShader = Renderer.getBoundInstancedShader();
+
+        glBindFramebuffer(GL_DRAW_FRAMEBUFFER, fbo);
+        glViewport(0, 0, width, height);
+        glDisable(GL_BLEND);
+        glEnable(GL_SCISSOR_TEST);
+        glScissor(x, y, w, h);
+        glClearBufferuiv(GL_COLOR, 0, new int[]{0, 0, 0, 0});
+
+        Renderer.bindShader(pickingShader, pickingInstancedShader);
+        Window.getScene().drawPrepared();
+
+        glDisable(GL_SCISSOR_TEST);
+        if (blend) {
+            glEnable(GL_BLEND);
+        }
+        glViewport(viewport[0], viewport[1], viewport[2], viewport[3]);
+        glBindFramebuffer(GL_DRAW_FRAMEBUFFER, previousFbo);
+        Renderer.bindShader(previousShader, previousInstancedShader);
     }
 
     public int readPixel(int x, int y) {
-        glBindFramebuffer(GL_READ_FRAMEBUFFER, fbo);
-        glReadBuffer(GL_COLOR_ATTACHMENT0);
+        if (x < 0 || y < 0 || x >= width || y >= height) {
+            return -1;
+        }
+        render(x, y, 1, 1);
 
-        float pixels[] = new float[3];
-        glReadPixels(x, y, 1, 1, GL_RGB, GL_FLOAT, pixels);
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, fbo);
+        int pixels[] = new int[1];
+        glReadPixels(x, y, 1, 1, GL_RED_INTEGER, GL_UNSIGNED_INT, pixels);
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, 0);
 
-        return (int)(pixels[0]) - 1;
+        // Ids are stored as uid + 1, so 0 (nothing) becomes -1
+        return pixels[0] - 1;
     }
 
-    public float[] readPixels(Vector2i start, Vector2i end) {
-        glBindFramebuffer(GL_READ_FRAMEBUFFER, fbo);
-        glReadBuffer(GL_COLOR_ATTACHMENT0);
+    public int[] readPixels(Vector2i start, Vector2i end) {
+        int x = Math.max(0, Math.min(start.x, end.x));
+        int y = Math.max(0, Math.min(start.y, end.y));
+        int w = Math.min(width, Math.max(start.x, end.x)) - x;
+        int h = Math.min(height, Math.max(start.y, end.y)) - y;
+        if (w <= 0 || h <= 0) {
+            return new int[0];
+        }
+        render(x, y, w, h);
 
-        Vector2i size = new Vector2i(end).sub(start).absolute();
-        int numPixels = size.x * size.y;
-        float pixels[] = new float[3 * numPixels];
-        glReadPixels(start.x, start.y, size.x, size.y, GL_RGB, GL_FLOAT, pixels);
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, fbo);
+        int pixels[] = new int[w * h];
+        glReadPixels(x, y, w, h, GL_RED_INTEGER, GL_UNSIGNED_INT, pixels);
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, 0);
         for (int i = 0; i < pixels.length; i++) {
             pixels[i] -= 1;
         }
 
         return pixels;
     }
+
+    // Same as readPixels, but the copy goes into a pixel buffer and the ids arrive through
+    // pollReads() on a later frame, instead of stalling until the GPU catches up
+    public CompletableFuture<int[]> readPixelsAsync(Vector2i start, Vector2i end) {
+        int x = Math.max(0, Math.min(start.x, end.x));
+        int y = Math.max(0, Math.min(start.y, end.y));
+        int w = Math.min(width, Math.max(start.x, end.x)) - x;
+        int h = Math.min(height, Math.max(start.y, end.y)) - y;
+        if (w <= 0 || h <= 0) {
+            return CompletableFuture.completedFuture(new int[0]);
+        }
+        render(x, y, w, h);
+
+        PendingRead read = new PendingRead();
+        read.numPixels = w * h;
+        read.buffer = acquireBuffer((long)read.numPixels * Integer.BYTES);
+        read.result = new CompletableFuture<>();
+
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, fbo);
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, read.buffer.id);
+        glReadPixels(x, y, w, h, GL_RED_INTEGER, GL_UNSIGNED_INT, 0);
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+        glBindFramebuffer(GL_READ_FRAMEBUFFER, 0);
+        read.fence = glFenceSync(GL_SYNC_GPU_COMMANDS_COMPLETE, 0);
+
+        pendingReads.add(read);
+        return read.result;
+    }
+
+    // Completes every asynchronous read the GPU has finished, called once per frame
+    public void pollReads() {
+        for (int i=0; i < pendingReads.size(); i++) {
+            PendingRead read = pendingReads.get(i);
+            int status = glClientWaitSync(read.fence, 0, 0);
+            if (status != GL_ALREADY_SIGNALED && status != GL_CONDITION_SATISFIED) {
+                continue;
+            }
+            glDeleteSync(read.fence);
+            pendingReads.remove(i);
+            i--;
+
+            int[] pixels = new int[read.numPixels];
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, read.buffer.id);
+            ByteBuffer mapped = glMapBufferRange(GL_PIXEL_PACK_BUFFER, 0,
+                    (long)read.numPixels * Integer.BYTES, GL_MAP_READ_BIT);
+            if (mapped != null) {
+                IntBuffer ids = mapped.order(ByteOrder.nativeOrder()).asIntBuffer();
+                for (int j=0; j < pixels.length; j++) {
+                    pixels[j] = ids.get(j) - 1;
+                }
+                glUnmapBuffer(GL_PIXEL_PACK_BUFFER);
+            }
+            glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+
+            freeBuffers.push(read.buffer);
+            read.result.complete(pixels);
+        }
+    }
+
+    private PixelBuffer acquireBuffer(long size) {
+        for (PixelBuffer buffer : freeBuffers) {
+            if (buffer.capacity >= size) {
+                freeBuffers.remove(buffer);
+                return buffer;
+            }
+        }
+
+        // Nothing large enough is free, grow a free buffer or make a new one
+        PixelBuffer buffer = freeBuffers.isEmpty() ? new PixelBuffer() : freeBuffers.pollLast();
+        if (buffer.id == 0) {
+            buffer.id = glGenBuffers();
+        }
+        buffer.capacity = size;
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, buffer.id);
+        glBufferData(GL_PIXEL_PACK_BUFFER, size, GL_STREAM_READ);
+        glBindBuffer(GL_PIXEL_PACK_BUFFER, 0);
+        return buffer;
+    }
 }
@@ -0,0 +1,363 @@
+package renderer;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Runs the renderer without a GL context: every call is kept in memory so tests and tools can look at a frame
+public class RecordingBackend implements RenderBackend {
+    private static final Pattern UNIFORM = Pattern.compile("uniform\\s+\\w+\\s+(\\w+)\\s*(\\[\\d+\\])?\\s*;");
+
+    public static class Command {
+        private final String name;
+        private final long[] args;
+
+        Command(String name, long... args) {
+            this.name = name;
+            this.args = args;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public long getArg(int index) {
+            return this.args[index];
+        }
+
+        public int getArgCount() {
+            return this.args.length;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder(name).append('(');
+            for (int i=0; i < args.length; i++) {
+                if (i > 0) builder.append(", ");
+                builder.append(args[i]);
+            }
+            return builder.append(')').toString();
+        }
+    }
+
+    private List<Command> commands = new ArrayList<>();
+    private Map<Integer, Map<String, Integer>> programUniforms = new HashMap<>();
+    // Ids start at 1, 0 means "nothing bound" as it does in GL
+    private int nextId = 1;
+    private long nextFence = 1;
+    private int viewportWidth;
+
+    private int drawCalls = 0;
+    private int stateChanges = 0;
+    private long bytesUploaded = 0;
+
+    public RecordingBackend(int viewportWidth) {
+        this.viewportWidth = viewportWidth;
+    }
+
+    private void record(String name, long... args) {
+        commands.add(new Command(name, args));
+    }
+
+    private void recordState(String name, long... args) {
+        record(name, args);
+        stateChanges++;
+    }
+
+    private void recordDraw(String name, long... args) {
+        record(name, args);
+        drawCalls++;
+    }
+
+    private void recordUpload(String name, long bytes, long... args) {
+        record(name, args);
+        bytesUploaded += bytes;
+    }
+
+    public List<Command> getCommands() {
+        return Collections.unmodifiableList(commands);
+    }
+
+    public int count(String name) {
+        int count = 0;
+        for (Command command : commands) {
+            if (command.getName().equals(name)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    public int getDrawCalls() {
+        return drawCalls;
+    }
+
+    public int getStateChanges() {
+        return stateChanges;
+    }
+
+    public long getBytesUploaded() {
+        return bytesUploaded;
+    }
+
+    // Forgets the recorded commands and counters, ids handed out so far stay valid
+    public void clear() {
+        commands.clear();
+        drawCalls = 0;
+        stateChanges = 0;
+        bytesUploaded = 0;
+    }
+
+    // ============================================================
+    // Buffers
+    // ============================================================
+    @Override
+    public int createBuffer() {
+        int id = nextId++;
+        record("createBuffer", id);
+        return id;
+    }
+
+    @Override
+    public void deleteBuffer(int buffer) {
+        record("deleteBuffer", buffer);
+    }
+
+    @Override
+    public void bindBuffer(BufferTarget target, int buffer) {
+        recordState("bindBuffer", target.ordinal(), buffer);
+    }
+
+    @Override
+    public void bindBufferBase(BufferTarget target, int binding, int buffer) {
+        recordState("bindBufferBase", target.ordinal(), binding, buffer);
+    }
+
+    @Override
+    public void bufferData(BufferTarget target, long size, boolean dynamic) {
+        record("bufferData", target.ordinal(), size);
+    }
+
+    @Override
+    public void bufferData(BufferTarget target, short[] data) {
+        long bytes = (long)data.length * Short.BYTES;
+        recordUpload("bufferData", bytes, target.ordinal(), bytes);
+    }
+
+    @Override
+    public void bufferSubData(BufferTarget target, long offset, long size, long address) {
+        recordUpload("bufferSubData", size, target.ordinal(), offset, size);
+    }
+
+    @Override
+    public MemorySegment mapPersistentBuffer(BufferTarget target, long size) {
+        // Batches fall back to staging memory, so every write shows up as an upload
+        return null;
+    }
+
+    @Override
+    public void unmapBuffer(BufferTarget target) {
+        record("unmapBuffer", target.ordinal());
+    }
+
+    @Override
+    public long fenceSync() {
+        long fence = nextFence++;
+        record("fenceSync", fence);
+        return fence;
+    }
+
+    @Override
+    public void waitSync(long fence) {
+        record("waitSync", fence);
+    }
+
+    @Override
+    public void deleteSync(long fence) {
+        record("deleteSync", fence);
+    }
+
+    // ============================================================
+    // Vertex arrays and draws
+    // ============================================================
+    @Override
+    public int createVertexArray() {
+        int id = nextId++;
+        record("createVertexArray", id);
+        return id;
+    }
+
+    @Override
+    public void deleteVertexArray(int vertexArray) {
+        record("deleteVertexArray", vertexArray);
+    }
+
+    @Override
+    public void bindVertexArray(int vertexArray) {
+        recordState("bindVertexArray", vertexArray);
+    }
+
+    @Override
+    public void vertexAttribute(int index, int size, AttributeType type, boolean normalized, int stride, long offset) {
+        record("vertexAttribute", index, size, type.ordinal(), stride, offset);
+    }
+
+    @Override
+    public void vertexAttributeInt(int index, int size, AttributeType type, int stride, long offset) {
+        record("vertexAttributeInt", index, size, type.ordinal(), stride, offset);
+    }
+
+    @Override
+    public void vertexAttributeDivisor(int index, int divisor) {
+        record("vertexAttributeDivisor", index, divisor);
+    }
+
+    @Override
+    public void drawElements(Primitive primitive, int indexCount, int baseVertex) {
+        recordDraw("drawElements", primitive.ordinal(), indexCount, baseVertex);
+    }
+
+    @Override
+    public void drawArrays(Primitive primitive, int first, int count) {
+        recordDraw("drawArrays", primitive.ordinal(), first, count);
+    }
+
+    @Override
+    public void drawArraysInstanced(Primitive primitive, int vertexCount, int instanceCount) {
+        recordDraw("drawArraysInstanced", primitive.ordinal(), vertexCount, instanceCount);
+    }
+
+    @Override
+    public void setLineWidth(float width) {
+        recordState("setLineWidth", Float.floatToIntBits(width));
+    }
+
+    @Override
+    public int getViewportWidth() {
+        return viewportWidth;
+    }
+
+    // ============================================================
+    // Programs
+    // ============================================================
+    @Override
+    public int createProgram(String name, String vertexSource, String fragmentSource) {
+        int id = nextId++;
+        record("createProgram", id);
+
+        // Nothing is compiled, every declared uniform simply gets the next location
+        Map<String, Integer> locations = new HashMap<>();
+        for (String source : new String[]{vertexSource, fragmentSource}) {
+            Matcher matcher = UNIFORM.matcher(source);
+            while (matcher.find()) {
+                locations.putIfAbsent(matcher.group(1), locations.size());
+            }
+        }
+        programUniforms.put(id, locations);
+        return id;
+    }
+
+    @Override
+    public Map<String, Integer> getUniformLocations(int program) {
+        return new HashMap<>(programUniforms.getOrDefault(program, Collections.emptyMap()));
+    }
+
+    @Override
+    public void bindUniformBlock(int program, String blockName, int binding) {
+        record("bindUniformBlock", program, binding);
+    }
+
+    @Override
+    public void useProgram(int program) {
+        recordState("useProgram", program);
+    }
+
+    @Override
+    public void uniformMatrix4(int location, float[] values) {
+        recordState("uniformMatrix4", location);
+    }
+
+    @Override
+    public void uniformMatrix3(int location, float[] values) {
+        recordState("uniformMatrix3", location);
+    }
+
+    @Override
+    public void uniform1f(int location, float x) {
+        recordState("uniform1f", location, Float.floatToIntBits(x));
+    }
+
+    @Override
+    public void uniform2f(int location, float x, float y) {
+        recordState("uniform2f", location, Float.floatToIntBits(x), Float.floatToIntBits(y));
+    }
+
+    @Override
+    public void uniform3f(int location, float x, float y, float z) {
+        recordState("uniform3f", location,
+                Float.floatToIntBits(x), Float.floatToIntBits(y), Float.floatToIntBits(z));
+    }
+
+    @Override
+    public void uniform4f(int location, float x, float y, float z, float w) {
+        recordState("uniform4f", location,
+                Float.floatToIntBits(x), Float.floatToIntBits(y), Float.floatToIntBits(z), Float.floatToIntBits(w));
+    }
+
+    @Override
+    public void uniform1i(int location, int value) {
+        recordState("uniform1i", location, value);
+    }
+
+    @Override
+    public void uniform1iv(int location, int[] values) {
+        recordState("uniform1iv", location, values.length);
+    }
+
+    // ============================================================
+    // Textures
+    // ============================================================
+    @Override
+    public int createTexture() {
+        int id = nextId++;
+        record("createTexture", id);
+        return id;
+    }
+
+    @Override
+    public void deleteTexture(int texture) {
+        record("deleteTexture", texture);
+    }
+
+    @Override
+    public void activeTexture(int unit) {
+        recordState("activeTexture", unit);
+    }
+
+    @Override
+    public void bindTexture(int texture) {
+        recordState("bindTexture", texture);
+    }
+
+    @Override
+    public void textureImage(int width, int height, boolean alpha, boolean linear, boolean repeat, ByteBuffer pixels) {
+        long bytes = pixels != null ? pixels.remaining() : 0;
+        recordUpload("textureImage", bytes, width, height);
+    }
+
+    @Override
+    public void textureSubImage(int x, int y, int width, int height, ByteBuffer rgbaPixels) {
+        recordUpload("textureSubImage", (long)width * height * 4, x, y, width, height);
+    }
+
+    @Override
+    public int getMaxTextureSize() {
+        return 4096;
+    }
+}
@@ -0,0 +1,83 @@
+package renderer;
+
+import java.lang.foreign.MemorySegment;
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+// Everything the sprite pipeline asks of the GPU. LwjglBackend talks to OpenGL, RecordingBackend only takes notes
+public interface RenderBackend {
+    enum BufferTarget { VERTEX, INDEX, UNIFORM }
+    enum AttributeType { FLOAT, UNSIGNED_BYTE, UNSIGNED_SHORT, UNSIGNED_INT }
+    enum Primitive { TRIANGLES, TRIANGLE_STRIP, LINES }
+
+    // ============================================================
+    // Buffers
+    // ============================================================
+    int createBuffer();
+    void deleteBuffer(int buffer);
+    void bindBuffer(BufferTarget target, int buffer);
+    void bindBufferBase(BufferTarget target, int binding, int buffer);
+    // Allocates the bound buffer without filling it
+    void bufferData(BufferTarget target, long size, boolean dynamic);
+    void bufferData(BufferTarget target, short[] data);
+    // Copies size bytes starting at the native address into the bound buffer
+    void bufferSubData(BufferTarget target, long offset, long size, long address);
+    // Persistent, coherent write mapping of the bound buffer, null when it is not supported
+    MemorySegment mapPersistentBuffer(BufferTarget target, long size);
+    // Releases the mapping of the bound buffer, its segment must not be touched afterwards
+    void unmapBuffer(BufferTarget target);
+
+    long fenceSync();
+    void waitSync(long fence);
+    void deleteSync(long fence);
+
+    // ============================================================
+    // Vertex arrays and draws
+    // ============================================================
+    int createVertexArray();
+    void deleteVertexArray(int vertexArray);
+    void bindVertexArray(int vertexArray);
+    void vertexAttribute(int index, int size, AttributeType type, boolean normalized, int stride, long offset);
+    // Read by the shader as integers, without conversion to float
+    void vertexAttributeInt(int index, int size, AttributeType type, int stride, long offset);
+    void vertexAttributeDivisor(int index, int divisor);
+
+    // 16 bit indices from the bound index buffer
+    void drawElements(Primitive primitive, int indexCount, int baseVertex);
+    void drawArrays(Primitive primitive, int first, int count);
+    void drawArraysInstanced(Primitive primitive, int vertexCount, int instanceCount);
+    void setLineWidth(float width);
+    int getViewportWidth();
+
+    // ============================================================
+    // Programs
+    // ============================================================
+    // Returns the program id, name is only used in error messages
+    int createProgram(String name, String vertexSource, String fragmentSource);
+    // Active uniforms by name, arrays under their plain name without "[0]"
+    Map<String, Integer> getUniformLocations(int program);
+    // Does nothing when the program has no block of that name
+    void bindUniformBlock(int program, String blockName, int binding);
+    void useProgram(int program);
+
+    void uniformMatrix4(int location, float[] values);
+    void uniformMatrix3(int location, float[] values);
+    void uniform1f(int location, float x);
+    void uniform2f(int location, float x, float y);
+    void uniform3f(int location, float x, float y, float z);
+    void uniform4f(int location, float x, float y, float z, float w);
+    void uniform1i(int location, int value);
+    void uniform1iv(int location, int[] values);
+
+    // ============================================================
+    // Textures, the image calls work on the bound texture
+    // ============================================================
+    int createTexture();
+    void deleteTexture(int texture);
+    void activeTexture(int unit);
+    void bindTexture(int texture);
+    // pixels may be null to only allocate, they are RGBA when alpha is set and RGB otherwise
+    void textureImage(int width, int height, boolean alpha, boolean linear, boolean repeat, ByteBuffer pixels);
+    void textureSubImage(int x, int y, int width, int height, ByteBuffer rgbaPixels);
+    int getMaxTextureSize();
+}
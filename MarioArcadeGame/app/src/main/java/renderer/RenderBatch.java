@@ -3,64 +3,102 @@ package renderer;
 import components.SpriteRenderer;
 import components.StateMachine;
 import jade.GameObject;
-import jade.Window;
-import org.joml.Matrix4f;
-import org.joml.Vector2f;
+import jade.Transform;
 import org.joml.Vector4f;
+import org.lwjgl.BufferUtils;
 import util.AssetPool;
 
+import java.lang.foreign.MemorySegment;
+import java.nio.ShortBuffer;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
-import static org.lwjgl.opengl.GL15.*;
-import static org.lwjgl.opengl.GL20.glDisableVertexAttribArray;
-import static org.lwjgl.opengl.GL20.glEnableVertexAttribArray;
-import static org.lwjgl.opengl.GL20C.glVertexAttribPointer;
-import static org.lwjgl.opengl.GL30.glBindVertexArray;
-import static org.lwjgl.opengl.GL30.glGenVertexArrays;
+import static renderer.RenderBackend.AttributeType.FLOAT;
+import static renderer.RenderBackend.AttributeType.UNSIGNED_BYTE;
+import static renderer.RenderBackend.AttributeType.UNSIGNED_INT;
+import static renderer.RenderBackend.AttributeType.UNSIGNED_SHORT;
+import static renderer.RenderBackend.BufferTarget.INDEX;
+import static renderer.RenderBackend.BufferTarget.VERTEX;
+import static renderer.RenderBackend.Primitive.TRIANGLES;
+import static renderer.SpriteVertexBuilder.*;
 
 public class RenderBatch implements Comparable<RenderBatch> {
-    // Vertex
-    // ======
-    // Pos               Color                         tex coords     tex id
-    // float, float,     float, float, float, float    float, float   float
-    private final int POS_SIZE = 2;
-    private final int COLOR_SIZE = 4;
-    private final int TEX_COORDS_SIZE = 2;
-    private final int TEX_ID_SIZE = 1;
-    private final int ENTITY_ID_SIZE = 1;
-
-    private final int POS_OFFSET = 0;
-    private final int COLOR_OFFSET = POS_OFFSET + POS_SIZE * Float.BYTES;
-    private final int TEX_COORDS_OFFSET = COLOR_OFFSET + COLOR_SIZE * Float.BYTES;
-    private final int TEX_ID_OFFSET = TEX_COORDS_OFFSET + TEX_COORDS_SIZE * Float.BYTES;
-    private final int ENTITY_ID_OFFSET = TEX_ID_OFFSET + TEX_ID_SIZE * Float.BYTES;
-    private final int VERTEX_SIZE = 10;
-    private final int VERTEX_SIZE_BYTES = VERTEX_SIZE * Float.BYTES;
-
-    private SpriteRenderer[] sprites;
-    private int numSprites;
+    // The vertex layout is defined in SpriteVertexBuilder, which fills the buffers
+
+    // Dirty ranges separated by at most this many clean sprites are uploaded as one range
+    private final int MERGE_GAP = 8;
+
+    // Streaming buffers are a ring of segments, one written per frame while the GPU reads the others
+    private final int STREAM_SEGMENTS = 3;
+
+    protected SpriteRenderer[] sprites;
+    private Map<SpriteRenderer, Integer> spriteIndices;
+    protected int numSprites;
     private boolean hasRoom;
-    private float[] vertices;
+    // Staging memory of the scene's arena, or the mapped streaming segment of this frame
+    protected MemorySegment vertexData;
+    private BitSet dirtySlots;
+    // Slots collected by prepare() whose vertices buildVertices() rewrites, possibly off the GL thread
+    private BitSet writeSlots;
+
+    private boolean streaming;
+    private MemorySegment[] segments;
+    private BitSet[] pendingSlots;
+    private long[] fences;
+    private int currentSegment;
+    private int lastFrame = -1;
+
+    // World space bounds of every slot (minX, minY, maxX, maxY) and of the whole batch
+    private float[] spriteBounds;
+    private float minX, minY, maxX, maxY;
+    private boolean boundsDirty = true;
+
+    // Quads of the sprites inside the camera view, drawn instead of the full index buffer
+    private ShortBuffer visibleIndices;
+    private int visibleSprites;
+    private boolean visibleIndicesChanged;
+    private int cullFrame = -1;
+    private int eboID, cullEboID;
+    // Index buffer and sprite count chosen by cull(), a batch drawn again reuses them until the next cull
+    private int drawEboID;
+    private int drawCount;
+
     private int[] texSlots = {0, 1, 2, 3, 4, 5, 6, 7};
 
     private List<Texture> textures;
+    // Texture, slot and atlas region of every sprite, looked up when the sprite arrives or changes texture
+    private Texture[] spriteTextures;
+    private byte[] spriteTexSlots;
+    private Vector4f[] spriteAtlasRegions;
+    // Interned by the renderer so batches with the same textures sort next to each other, -1 when stale
+    private int textureSetId = -1;
+    // Where the renderer drew this batch in the last frame, -1 when it was culled
+    private int queuePosition = -1;
     private int vaoID, vboID;
-    private int maxBatchSize;
+    protected int maxBatchSize;
     private int zIndex;
+    // Static batches hold scenery, their vertices are uploaded once and never streamed
+    private boolean isStatic;
 
     private Renderer renderer;
 
-    public RenderBatch(int maxBatchSize, int zIndex, Renderer renderer) {
+    public RenderBatch(int maxBatchSize, int zIndex, boolean isStatic, Renderer renderer) {
         this.renderer = renderer;
 
         this.zIndex = zIndex;
+        this.isStatic = isStatic;
         this.sprites = new SpriteRenderer[maxBatchSize];
+        this.spriteIndices = new HashMap<>();
+        this.spriteBounds = new float[4 * maxBatchSize];
+        this.writeSlots = new BitSet(maxBatchSize);
+        this.spriteTextures = new Texture[maxBatchSize];
+        this.spriteTexSlots = new byte[maxBatchSize];
+        this.spriteAtlasRegions = new Vector4f[maxBatchSize];
         this.maxBatchSize = maxBatchSize;
 
-        // 4 vertices quads
-        vertices = new float[maxBatchSize * 4 * VERTEX_SIZE];
-
         this.numSprites = 0;
         this.hasRoom = true;
         this.textures = new ArrayList<>();
@@ -68,202 +106,530 @@ public class RenderBatch implements Comparable<RenderBatch> {
 
     public void start() {
         // Generate and bind a Vertex Array Object
-        vaoID = glGenVertexArrays();
-        glBindVertexArray(vaoID);
+        RenderBackend backend = Renderer.getBackend();
+        vaoID = backend.createVertexArray();
+        GLState.bindVertexArray(vaoID);
+
+        // Allocate space for vertices, 4 vertices per quad
+        vboID = backend.createBuffer();
+        backend.bindBuffer(VERTEX, vboID);
+        long segmentSize = (long)maxBatchSize * getSpriteSizeBytes();
+        MemorySegment mapped = isStatic ? null : backend.mapPersistentBuffer(VERTEX, segmentSize * STREAM_SEGMENTS);
+        this.streaming = mapped != null;
+        if (streaming) {
+            startStreaming(mapped, segmentSize);
+        } else {
+            vertexData = renderer.getArena().allocate(segmentSize, Long.BYTES);
+            dirtySlots = new BitSet(maxBatchSize);
+            backend.bufferData(VERTEX, vertexData.byteSize(), !isStatic);
+        }
+
+        setupAttributes();
+    }
 
-        // Allocate space for vertices
-        vboID = glGenBuffers();
-        glBindBuffer(GL_ARRAY_BUFFER, vboID);
-        glBufferData(GL_ARRAY_BUFFER, vertices.length * Float.BYTES, GL_DYNAMIC_DRAW);
+    protected void setupAttributes() {
+        RenderBackend backend = Renderer.getBackend();
 
         // Create and upload indices buffer
-        int eboID = glGenBuffers();
-        int[] indices = generateIndices();
-        glBindBuffer(GL_ELEMENT_ARRAY_BUFFER, eboID);
-        glBufferData(GL_ELEMENT_ARRAY_BUFFER, indices, GL_STATIC_DRAW);
+        eboID = backend.createBuffer();
+        short[] indices = generateIndices();
+        backend.bindBuffer(INDEX, eboID);
+        backend.bufferData(INDEX, indices);
+
+        // Filled with the visible quads when the batch is only partly on screen
+        cullEboID = backend.createBuffer();
+        visibleIndices = BufferUtils.createShortBuffer(indices.length);
+        backend.bindBuffer(INDEX, cullEboID);
+        backend.bufferData(INDEX, (long)indices.length * Short.BYTES, true);
+        backend.bindBuffer(INDEX, eboID);
 
         // Enable the buffer attribute pointers
-        glVertexAttribPointer(0, POS_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, POS_OFFSET);
-        glEnableVertexAttribArray(0);
+        backend.vertexAttribute(0, POS_SIZE, FLOAT, false, VERTEX_SIZE_BYTES, POS_OFFSET);
+        backend.vertexAttribute(1, COLOR_SIZE, UNSIGNED_BYTE, true, VERTEX_SIZE_BYTES, COLOR_OFFSET);
+        backend.vertexAttribute(2, TEX_COORDS_SIZE, UNSIGNED_SHORT, true, VERTEX_SIZE_BYTES, TEX_COORDS_OFFSET);
 
-        glVertexAttribPointer(1, COLOR_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, COLOR_OFFSET);
-        glEnableVertexAttribArray(1);
-
-        glVertexAttribPointer(2, TEX_COORDS_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, TEX_COORDS_OFFSET);
-        glEnableVertexAttribArray(2);
+        // Ids are read as integers, so they stay exact past 2^24
+        backend.vertexAttributeInt(3, TEX_ID_SIZE, UNSIGNED_BYTE, VERTEX_SIZE_BYTES, TEX_ID_OFFSET);
+        backend.vertexAttributeInt(4, ENTITY_ID_SIZE, UNSIGNED_INT, VERTEX_SIZE_BYTES, ENTITY_ID_OFFSET);
+    }
 
-        glVertexAttribPointer(3, TEX_ID_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, TEX_ID_OFFSET);
-        glEnableVertexAttribArray(3);
+    private void startStreaming(MemorySegment mapped, long segmentSize) {
+        segments = new MemorySegment[STREAM_SEGMENTS];
+        pendingSlots = new BitSet[STREAM_SEGMENTS];
+        fences = new long[STREAM_SEGMENTS];
+        for (int i=0; i < STREAM_SEGMENTS; i++) {
+            segments[i] = mapped.asSlice(segmentSize * i, segmentSize);
+            pendingSlots[i] = new BitSet(maxBatchSize);
+        }
 
-        glVertexAttribPointer(4, ENTITY_ID_SIZE, GL_FLOAT, false, VERTEX_SIZE_BYTES, ENTITY_ID_OFFSET);
-        glEnableVertexAttribArray(4);
+        currentSegment = 0;
+        vertexData = segments[0];
     }
 
     public void addSprite(SpriteRenderer spr) {
         // Get index and add renderObject
         int index = this.numSprites;
         this.sprites[index] = spr;
+        this.spriteIndices.put(spr, index);
         this.numSprites++;
 
-        if (spr.getTexture() != null) {
-            if (!textures.contains(spr.getTexture())) {
-                textures.add(spr.getTexture());
+        Texture tex = batchTexture(spr.getTexture());
+        if (tex != null) {
+            if (!textures.contains(tex)) {
+                textures.add(tex);
+                textureSetId = -1;
             }
         }
+        cacheTexture(index);
 
         // Add properties to local vertices array
-        loadVertexProperties(index);
+        writeSprite(index);
+        spr.setClean();
 
         if (numSprites >= this.maxBatchSize) {
             this.hasRoom = false;
         }
     }
 
-    public void render() {
-        boolean rebufferData = false;
+    // Collects dirty sprites for buildVertices(), sprites that belong in another batch are queued on the renderer
+    public void prepare() {
+        if (streaming) {
+            beginStreamingFrame();
+        }
+
         for (int i=0; i < numSprites; i++) {
             SpriteRenderer spr = sprites[i];
-            if (spr.isDirty()) {
-                if (!hasTexture(spr.getTexture())) {
-                    this.renderer.destroyGameObject(spr.gameObject);
-                    this.renderer.add(spr.gameObject);
-                } else {
-                    loadVertexProperties(i);
-                    spr.setClean();
-                    rebufferData = true;
-                }
+            if (!spr.isDirty()) {
+                continue;
             }
 
-            // TODO: get better solution for this
+            if (isStatic) {
+                // Scenery that starts moving is handed to a dynamic batch
+                this.renderer.demote(spr);
+                continue;
+            }
             if (spr.gameObject.transform.zIndex != this.zIndex) {
-                destroyIfExists(spr.gameObject);
-                renderer.add(spr.gameObject);
-                i--;
+                this.renderer.queueMigration(spr);
+                continue;
             }
+
+            Texture tex = batchTexture(spr.getTexture());
+            if (tex != null && !hasTexture(tex)) {
+                if (!hasTextureRoom()) {
+                    this.renderer.queueMigration(spr);
+                    continue;
+                }
+                textures.add(tex);
+                textureSetId = -1;
+                this.renderer.textureAdded(this, tex);
+            }
+            if (spr.getTexture() != spriteTextures[i]) {
+                cacheTexture(i);
+            }
+
+            writeSlots.set(i);
+            markDirty(i);
+            spr.setClean();
         }
-        if (rebufferData) {
-            glBindBuffer(GL_ARRAY_BUFFER, vboID);
-            glBufferSubData(GL_ARRAY_BUFFER, 0, vertices);
-        }
+    }
 
-        // Use shader
-        Shader shader = Renderer.getBoundShader();
-        shader.uploadMat4f("uProjection", Window.getScene().camera().getProjectionMatrix());
-        shader.uploadMat4f("uView", Window.getScene().camera().getViewMatrix());
-        for (int i=0; i < textures.size(); i++) {
-            glActiveTexture(GL_TEXTURE0 + i + 1);
-            textures.get(i).bind();
+    public boolean hasVertexWork() {
+        return !writeSlots.isEmpty();
+    }
+
+    // Only touches this batch's own buffers, so batches can be built in parallel
+    public void buildVertices() {
+        for (int i = writeSlots.nextSetBit(0); i >= 0; i = writeSlots.nextSetBit(i + 1)) {
+            loadVertexProperties(i);
+            updateBounds(i);
         }
-        shader.uploadIntArray("uTextures", texSlots);
+    }
 
-        glBindVertexArray(vaoID);
-        glEnableVertexAttribArray(0);
-        glEnableVertexAttribArray(1);
+    // Back on the GL thread, shares the results with the renderer
+    public void finishVertices() {
+        for (int i = writeSlots.nextSetBit(0); i >= 0; i = writeSlots.nextSetBit(i + 1)) {
+            finishSprite(i);
+        }
+        writeSlots.clear();
+    }
 
-        glDrawElements(GL_TRIANGLES, this.numSprites * 6, GL_UNSIGNED_INT, 0);
+    // Uploads and culls, returns false when nothing of the batch is on screen
+    public boolean cull() {
+        if (!streaming) {
+            uploadDirtyRanges();
+        }
 
-        glDisableVertexAttribArray(0);
-        glDisableVertexAttribArray(1);
-        glBindVertexArray(0);
+        updateVisibility(renderer.getViewBounds());
+        prepareIndices();
+        return drawCount > 0;
+    }
 
+    // Program and textures stay bound, the following batches with the same texture set skip this
+    public void bindState() {
+        // Bound here rather than by the uniform upload, which skips programs without uTextures
+        Shader shader = getShader();
+        shader.use();
         for (int i=0; i < textures.size(); i++) {
-            textures.get(i).unbind();
+            textures.get(i).bind(i + 1);
+        }
+        shader.uploadIntArray("uTextures", texSlots);
+    }
+
+    public void draw() {
+        GLState.bindVertexArray(vaoID);
+        Renderer.getBackend().bindBuffer(INDEX, drawEboID);
+        if (streaming) {
+            drawSprites(currentSegment * maxBatchSize, drawCount);
+            fenceSegment(currentSegment);
+        } else {
+            drawSprites(0, drawCount);
         }
-        shader.detach();
     }
 
     public boolean destroyIfExists(GameObject go) {
         SpriteRenderer sprite = go.getComponent(SpriteRenderer.class);
-        for (int i=0; i < numSprites; i++) {
-            if (sprites[i] == sprite) {
-                for (int j=i; j < numSprites - 1; j++) {
-                    sprites[j] = sprites[j + 1];
-                    sprites[j].setDirty();
-                }
-                numSprites--;
-                return true;
+        Integer index = spriteIndices.remove(sprite);
+        if (index == null) {
+            return false;
+        }
+
+        // Move the last sprite into the hole, so only one slot has to be rewritten
+        int last = numSprites - 1;
+        if (index != last) {
+            sprites[index] = sprites[last];
+            spriteIndices.put(sprites[index], index);
+            spriteTextures[index] = spriteTextures[last];
+            spriteTexSlots[index] = spriteTexSlots[last];
+            spriteAtlasRegions[index] = spriteAtlasRegions[last];
+            writeSprite(index);
+        }
+        sprites[last] = null;
+        spriteTextures[last] = null;
+        spriteAtlasRegions[last] = null;
+        numSprites--;
+        hasRoom = true;
+        boundsDirty = true;
+
+        return true;
+    }
+
+    protected Shader getShader() {
+        return Renderer.getBoundShader();
+    }
+
+    // Shader part of the sort key, batches drawn with different programs get different values
+    protected int getVboID() {
+        return this.vboID;
+    }
+
+    protected int getShaderKey() {
+        return 0;
+    }
+
+    protected void drawSprites(int firstSprite, int count) {
+        // The base vertex selects the streaming segment, it is 0 for regular buffers
+        Renderer.getBackend().drawElements(TRIANGLES, count * 6, firstSprite * 4);
+    }
+
+    // Slots changed outside of prepare(), by an added sprite or one moved into a hole
+    private void writeSprite(int index) {
+        updateBounds(index);
+        if (streaming && fences[currentSegment] != 0) {
+            // The GPU may still be reading the current segment, so every segment is written
+            // in prepare() once its fence has been waited on
+            updateSpatialIndex(index);
+            for (int i=0; i < STREAM_SEGMENTS; i++) {
+                pendingSlots[i].set(index);
             }
+            return;
         }
 
-        return false;
+        loadVertexProperties(index);
+        finishSprite(index);
+        markDirty(index);
     }
-    
-private void loadVertexProperties(int index) {
-        SpriteRenderer sprite = this.sprites[index];
 
-        // Find offset within array (4 vertices per sprite)
-        int offset = index * 4 * VERTEX_SIZE;
+    private void updateSpatialIndex(int index) {
+        int offset = index * 4;
+        renderer.getSpatialIndex().update(sprites[index], spriteBounds[offset], spriteBounds[offset + 1],
+                spriteBounds[offset + 2], spriteBounds[offset + 3]);
+    }
 
-        Vector4f color = sprite.getColor();
-        Vector2f[] texCoords = sprite.getTexCoords();
+    private void finishSprite(int index) {
+        updateSpatialIndex(index);
+        if (streaming) {
+            // Vertices are written straight into GPU visible memory
+            RenderStats.addBytesUploaded(getSpriteSizeBytes());
+        }
+    }
 
-        int texId = 0;
-        if (sprite.getTexture() != null) {
-            for (int i = 0; i < textures.size(); i++) {
-                if (textures.get(i).equals(sprite.getTexture())) {
-                    texId = i + 1;
-                    break;
+    private void markDirty(int index) {
+        if (streaming) {
+            // The other segments still hold the old vertices, rewrite them when they come around
+            for (int i=0; i < STREAM_SEGMENTS; i++) {
+                if (i != currentSegment) {
+                    pendingSlots[i].set(index);
                 }
             }
+        } else {
+            dirtySlots.set(index);
+        }
+    }
+
+    private void updateBounds(int index) {
+        Transform transform = sprites[index].gameObject.transform;
+        float halfWidth = Math.abs(transform.scale.x) * 0.5f;
+        float halfHeight = Math.abs(transform.scale.y) * 0.5f;
+        if (transform.rotation != 0.0f) {
+            // Extents of the rotated quad along the world axes
+            double angle = Math.toRadians(transform.rotation);
+            float cos = (float)Math.abs(Math.cos(angle));
+            float sin = (float)Math.abs(Math.sin(angle));
+            float rotatedWidth = cos * halfWidth + sin * halfHeight;
+            halfHeight = sin * halfWidth + cos * halfHeight;
+            halfWidth = rotatedWidth;
+        }
+
+        int offset = index * 4;
+        spriteBounds[offset] = transform.position.x - halfWidth;
+        spriteBounds[offset + 1] = transform.position.y - halfHeight;
+        spriteBounds[offset + 2] = transform.position.x + halfWidth;
+        spriteBounds[offset + 3] = transform.position.y + halfHeight;
+        boundsDirty = true;
+    }
+
+    private void updateBatchBounds() {
+        minX = Float.MAX_VALUE;
+        minY = Float.MAX_VALUE;
+        maxX = -Float.MAX_VALUE;
+        maxY = -Float.MAX_VALUE;
+        for (int i=0; i < numSprites; i++) {
+            int offset = i * 4;
+            minX = Math.min(minX, spriteBounds[offset]);
+            minY = Math.min(minY, spriteBounds[offset + 1]);
+            maxX = Math.max(maxX, spriteBounds[offset + 2]);
+            maxY = Math.max(maxY, spriteBounds[offset + 3]);
+        }
+        boundsDirty = false;
+    }
+
+    private void updateVisibility(Vector4f view) {
+        // The result is reused when the batch is culled again within a frame and nothing moved
+        int frame = RenderStats.getFrame();
+        boolean sameFrame = frame == cullFrame;
+        if (sameFrame && !boundsDirty) {
+            return;
+        }
+        if (sameFrame) {
+            RenderStats.addSpritesDrawn(-visibleSprites);
+            RenderStats.addSpritesCulled(-(numSprites - visibleSprites));
+        }
+        cullFrame = frame;
+
+        if (boundsDirty) {
+            updateBatchBounds();
+        }
+
+        if (numSprites == 0 || maxX < view.x || minX > view.z || maxY < view.y || minY > view.w) {
+            visibleSprites = 0;
+        } else if (!cullsSprites() || (minX >= view.x && maxX <= view.z && minY >= view.y && maxY <= view.w)) {
+            visibleSprites = numSprites;
+        } else {
+            compactVisibleSprites(view);
+        }
+
+        RenderStats.addSpritesDrawn(visibleSprites);
+        RenderStats.addSpritesCulled(numSprites - visibleSprites);
+    }
+
+    private void compactVisibleSprites(Vector4f view) {
+        visibleIndices.clear();
+        visibleSprites = 0;
+        for (int i=0; i < numSprites; i++) {
+            int offset = i * 4;
+            if (spriteBounds[offset + 2] < view.x || spriteBounds[offset] > view.z ||
+                    spriteBounds[offset + 3] < view.y || spriteBounds[offset + 1] > view.w) {
+                continue;
+            }
+
+            int vertex = i * 4;
+            visibleIndices.put((short)(vertex + 3)).put((short)(vertex + 2)).put((short)vertex);
+            visibleIndices.put((short)vertex).put((short)(vertex + 2)).put((short)(vertex + 1));
+            visibleSprites++;
+        }
+        visibleIndices.flip();
+        visibleIndicesChanged = true;
+    }
+
+    private void prepareIndices() {
+        drawCount = visibleSprites;
+        if (visibleSprites == numSprites) {
+            drawEboID = eboID;
+            return;
         }
 
-        boolean isRotated = sprite.gameObject.transform.rotation != 0.0f;
-        Matrix4f transformMatrix = new Matrix4f().identity();
-        if (isRotated) {
-            transformMatrix.translate(sprite.gameObject.transform.position.x,
-                                        sprite.gameObject.transform.position.y, 0f);
-            transformMatrix.rotate((float)Math.toRadians(sprite.gameObject.transform.rotation),
-                    0, 0, 1);
-            transformMatrix.scale(sprite.gameObject.transform.scale.x,
-                    sprite.gameObject.transform.scale.y, 1);
-        }
-
-        // Add vertices with the appropriate properties
-        float xAdd = 0.5f;
-        float yAdd = 0.5f;
-        for (int i=0; i < 4; i++) {
-            if (i == 1) {
-                yAdd = -0.5f;
-            } else if (i == 2) {
-                xAdd = -0.5f;
-            } else if (i == 3) {
-                yAdd = 0.5f;
+        drawEboID = cullEboID;
+        if (visibleIndicesChanged) {
+            // The index buffer binding belongs to the vertex array, so ours has to be bound for the upload
+            GLState.bindVertexArray(vaoID);
+            Renderer.getBackend().bindBuffer(INDEX, cullEboID);
+            Renderer.getBackend().bufferSubData(INDEX, 0, (long)visibleIndices.remaining() * Short.BYTES,
+                    MemorySegment.ofBuffer(visibleIndices).address());
+            RenderStats.addBytesUploaded((long)visibleIndices.remaining() * Short.BYTES);
+            visibleIndicesChanged = false;
+        }
+    }
+
+    // Batches drawn from an index buffer can skip single sprites, others are culled as a whole
+    protected boolean cullsSprites() {
+        return true;
+    }
+
+    private void beginStreamingFrame() {
+        int frame = RenderStats.getFrame();
+        if (frame == lastFrame) {
+            return;
+        }
+        lastFrame = frame;
+
+        currentSegment = (currentSegment + 1) % STREAM_SEGMENTS;
+        waitForSegment(currentSegment);
+        vertexData = segments[currentSegment];
+
+        BitSet pending = pendingSlots[currentSegment];
+        for (int i = pending.nextSetBit(0); i >= 0 && i < numSprites; i = pending.nextSetBit(i + 1)) {
+            writeSlots.set(i);
+        }
+        pending.clear();
+    }
+
+    // Frees the GPU side of the batch, the staging memory goes with the scene's arena
+    public void destroy() {
+        RenderBackend backend = Renderer.getBackend();
+        if (streaming) {
+            // The GPU may still read the ring, it has to be done before the mapping goes away
+            for (int i=0; i < STREAM_SEGMENTS; i++) {
+                waitForSegment(i);
             }
+            backend.bindBuffer(VERTEX, vboID);
+            backend.unmapBuffer(VERTEX);
+            segments = null;
+            vertexData = null;
+        }
+        backend.bindBuffer(VERTEX, 0);
+
+        backend.deleteBuffer(vboID);
+        backend.deleteBuffer(eboID);
+        backend.deleteBuffer(cullEboID);
+        backend.deleteVertexArray(vaoID);
+        GLState.vertexArrayDeleted(vaoID);
+    }
+
+    private void waitForSegment(int segment) {
+        long fence = fences[segment];
+        if (fence == 0) {
+            return;
+        }
+
+        Renderer.getBackend().waitSync(fence);
+        Renderer.getBackend().deleteSync(fence);
+        fences[segment] = 0;
+    }
 
-            Vector4f currentPos = new Vector4f(sprite.gameObject.transform.position.x + (xAdd * sprite.gameObject.transform.scale.x),
-                    sprite.gameObject.transform.position.y + (yAdd * sprite.gameObject.transform.scale.y),
-                    0, 1);
-            if (isRotated) {
-                currentPos = new Vector4f(xAdd, yAdd, 0, 1).mul(transformMatrix);
+    private void fenceSegment(int segment) {
+        if (fences[segment] != 0) {
+            Renderer.getBackend().deleteSync(fences[segment]);
+        }
+        fences[segment] = Renderer.getBackend().fenceSync();
+    }
+
+    private void uploadDirtyRanges() {
+        int start = dirtySlots.nextSetBit(0);
+        if (start < 0) {
+            return;
+        }
+
+        Renderer.getBackend().bindBuffer(VERTEX, vboID);
+        while (start >= 0 && start < numSprites) {
+            int end = dirtySlots.nextClearBit(start);
+
+            // Merge with the following ranges while the clean gap between them is small
+            int next = dirtySlots.nextSetBit(end);
+            while (next >= 0 && next - end <= MERGE_GAP) {
+                end = dirtySlots.nextClearBit(next);
+                next = dirtySlots.nextSetBit(end);
             }
 
-            // Load position
-            vertices[offset] = currentPos.x;
-            vertices[offset + 1] = currentPos.y;
+            uploadRange(start, Math.min(end, numSprites));
+            start = next;
+        }
+        dirtySlots.clear();
+    }
 
-            // Load color
-            vertices[offset + 2] = color.x;
-            vertices[offset + 3] = color.y;
-            vertices[offset + 4] = color.z;
-            vertices[offset + 5] = color.w;
+    private void uploadRange(int startSprite, int endSprite) {
+        int startByte = startSprite * getSpriteSizeBytes();
+        int endByte = endSprite * getSpriteSizeBytes();
 
-            // Load texture coordinates
-            vertices[offset + 6] = texCoords[i].x;
-            vertices[offset + 7] = texCoords[i].y;
+        // Handed to GL by address, nothing is copied on the Java side
+        Renderer.getBackend().bufferSubData(VERTEX, startByte, endByte - startByte, vertexData.address() + startByte);
 
-            // Load texture id
-            vertices[offset + 8] = texId;
+        RenderStats.addBytesUploaded(endByte - startByte);
+    }
 
-            // Load entity id
-            vertices[offset + 9] = sprite.gameObject.getUid() + 1;
+    protected int getSpriteSizeBytes() {
+        return SPRITE_SIZE_BYTES;
+    }
+
+    protected void loadVertexProperties(int index) {
+        SpriteRenderer sprite = this.sprites[index];
+        Transform transform = sprite.gameObject.transform;
+        SpriteVertexBuilder.writeSprite(vertexData, (long)index * SPRITE_SIZE_BYTES,
+                transform.position.x, transform.position.y, transform.scale.x, transform.scale.y,
+                transform.rotation, sprite.getTexCoords(), spriteAtlasRegions[index], sprite.getColor(),
+                sprite.gameObject.getUid() + 1, spriteTexSlots[index]);
+    }
+
+    // Sprites from packed spritesheets sample the atlas instead of their own texture
+    private void cacheTexture(int index) {
+        Texture tex = sprites[index].getTexture();
+        spriteTextures[index] = tex;
+        spriteTexSlots[index] = (byte)getTexSlot(tex);
+        spriteAtlasRegions[index] = getAtlasRegion(tex);
+    }
+
+    protected int getCachedTexSlot(int index) {
+        return spriteTexSlots[index];
+    }
+
+    protected Vector4f getCachedAtlasRegion(int index) {
+        return spriteAtlasRegions[index];
+    }
 
-            offset += VERTEX_SIZE;
+    protected Vector4f getAtlasRegion(Texture tex) {
+        if (tex == null) {
+            return null;
         }
+
+        TextureAtlas atlas = AssetPool.getAtlas(tex);
+        return atlas != null ? atlas.getRegion(tex) : null;
+    }
+
+    protected int getTexSlot(Texture tex) {
+        tex = batchTexture(tex);
+        if (tex != null) {
+            for (int i = 0; i < textures.size(); i++) {
+                if (textures.get(i).equals(tex)) {
+                    return i + 1;
+                }
+            }
+        }
+
+        return 0;
     }
 
-    private int[] generateIndices() {
-        // 6 indices per quad (3 per triangle)
-        int[] elements = new int[6 * maxBatchSize];
+    private short[] generateIndices() {
+        // 6 indices per quad (3 per triangle), a batch never has more than 65536 vertices
+        short[] elements = new short[6 * maxBatchSize];
         for (int i=0; i < maxBatchSize; i++) {
             loadElementIndices(elements, i);
         }
@@ -271,20 +637,29 @@ private void loadVertexProperties(int index) {
         return elements;
     }
 
-    private void loadElementIndices(int[] elements, int index) {
+    private void loadElementIndices(short[] elements, int index) {
         int offsetArrayIndex = 6 * index;
         int offset = 4 * index;
 
         // 3, 2, 0, 0, 2, 1        7, 6, 4, 4, 6, 5
         // Triangle 1
-        elements[offsetArrayIndex] = offset + 3;
-        elements[offsetArrayIndex + 1] = offset + 2;
-        elements[offsetArrayIndex + 2] = offset + 0;
+        elements[offsetArrayIndex] = (short)(offset + 3);
+        elements[offsetArrayIndex + 1] = (short)(offset + 2);
+        elements[offsetArrayIndex + 2] = (short)(offset + 0);
 
         // Triangle 2
-        elements[offsetArrayIndex + 3] = offset + 0;
-        elements[offsetArrayIndex + 4] = offset + 2;
-        elements[offsetArrayIndex + 5] = offset + 1;
+        elements[offsetArrayIndex + 3] = (short)(offset + 0);
+        elements[offsetArrayIndex + 4] = (short)(offset + 2);
+        elements[offsetArrayIndex + 5] = (short)(offset + 1);
+    }
+
+    static Texture batchTexture(Texture tex) {
+        if (tex == null) {
+            return null;
+        }
+
+        TextureAtlas atlas = AssetPool.getAtlas(tex);
+        return atlas != null ? atlas.getTexture() : tex;
     }
 
     public boolean hasRoom() {
@@ -299,10 +674,40 @@ private void loadVertexProperties(int index) {
         return this.textures.contains(tex);
     }
 
+    List<Texture> getTextures() {
+        return this.textures;
+    }
+
+    int getTextureSetId() {
+        return this.textureSetId;
+    }
+
+    void setTextureSetId(int textureSetId) {
+        this.textureSetId = textureSetId;
+    }
+
+    int getQueuePosition() {
+        return this.queuePosition;
+    }
+
+    void setQueuePosition(int queuePosition) {
+        this.queuePosition = queuePosition;
+    }
+
+    // Slot of the sprite, later slots are drawn over earlier ones. -1 when it is not in this batch
+    int slotOf(SpriteRenderer sprite) {
+        Integer index = spriteIndices.get(sprite);
+        return index != null ? index : -1;
+    }
+
     public int zIndex() {
         return this.zIndex;
     }
 
+    public boolean isStatic() {
+        return this.isStatic;
+    }
+
     @Override
     public int compareTo(RenderBatch o) {
         return Integer.compare(this.zIndex, o.zIndex());
@@ -0,0 +1,85 @@
+package renderer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RenderGraph {
+    private List<RenderPass> passes;
+    private List<RenderPass> sortedPasses;
+
+    public RenderGraph() {
+        this.passes = new ArrayList<>();
+        this.sortedPasses = null;
+    }
+
+    public void addPass(RenderPass pass) {
+        this.passes.add(pass);
+        this.sortedPasses = null;
+    }
+
+    public void execute(float dt) {
+        if (sortedPasses == null) {
+            sortedPasses = sortPasses();
+        }
+
+        for (RenderPass pass : sortedPasses) {
+            if (pass.isEnabled()) {
+                pass.execute(dt);
+            }
+        }
+    }
+
+    private List<RenderPass> sortPasses() {
+        // A pass depends on every earlier added pass that writes one of its inputs,
+        // passes touching the same resource keep the order they were added in
+        int count = passes.size();
+        List<List<Integer>> dependents = new ArrayList<>();
+        int[] dependencyCount = new int[count];
+        for (int i=0; i < count; i++) {
+            dependents.add(new ArrayList<>());
+        }
+        for (int i=0; i < count; i++) {
+            for (int j=i + 1; j < count; j++) {
+                if (dependsOn(passes.get(j), passes.get(i))) {
+                    dependents.get(i).add(j);
+                    dependencyCount[j]++;
+                } else if (dependsOn(passes.get(i), passes.get(j))) {
+                    dependents.get(j).add(i);
+                    dependencyCount[i]++;
+                }
+            }
+        }
+
+        List<RenderPass> sorted = new ArrayList<>();
+        boolean[] done = new boolean[count];
+        while (sorted.size() < count) {
+            int next = -1;
+            for (int i=0; i < count; i++) {
+                if (!done[i] && dependencyCount[i] == 0) {
+                    next = i;
+                    break;
+                }
+            }
+            if (next < 0) {
+                throw new IllegalStateException("Render graph has a dependency cycle.");
+            }
+
+            done[next] = true;
+            sorted.add(passes.get(next));
+            for (int dependent : dependents.get(next)) {
+                dependencyCount[dependent]--;
+            }
+        }
+
+        return sorted;
+    }
+
+    private static boolean dependsOn(RenderPass pass, RenderPass other) {
+        for (String input : pass.getInputs()) {
+            if (other.getOutputs().contains(input)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
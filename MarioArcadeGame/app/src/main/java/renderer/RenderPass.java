@@ -0,0 +1,44 @@
+package renderer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public abstract class RenderPass {
+    private String name;
+    private List<String> inputs = new ArrayList<>();
+    private List<String> outputs = new ArrayList<>();
+
+    public RenderPass(String name) {
+        this.name = name;
+    }
+
+    // Resources are plain names, a pass runs after every pass writing a resource it reads
+    public RenderPass reads(String resource) {
+        this.inputs.add(resource);
+        return this;
+    }
+
+    public RenderPass writes(String resource) {
+        this.outputs.add(resource);
+        return this;
+    }
+
+    public boolean isEnabled() {
+        return true;
+    }
+
+    public abstract void execute(float dt);
+
+    public String getName() {
+        return this.name;
+    }
+
+    public List<String> getInputs() {
+        return Collections.unmodifiableList(this.inputs);
+    }
+
+    public List<String> getOutputs() {
+        return Collections.unmodifiableList(this.outputs);
+    }
+}
@@ -0,0 +1,125 @@
+package renderer;
+
+import java.util.Arrays;
+
+public class RenderQueue {
+    // Sort key, most significant first
+    // ========
+    // Pass      Layer (z index)   Shader    Texture set   Depth
+    // 4 bits    16 bits           8 bits    16 bits       20 bits
+    private static final int DEPTH_BITS = 20;
+    private static final int TEXTURE_SET_BITS = 16;
+    private static final int SHADER_BITS = 8;
+    private static final int LAYER_BITS = 16;
+    private static final int PASS_BITS = 4;
+
+    private static final int TEXTURE_SET_SHIFT = DEPTH_BITS;
+    private static final int SHADER_SHIFT = TEXTURE_SET_SHIFT + TEXTURE_SET_BITS;
+    private static final int LAYER_SHIFT = SHADER_SHIFT + SHADER_BITS;
+    private static final int PASS_SHIFT = LAYER_SHIFT + LAYER_BITS;
+
+    public static final int PASS_SPRITES = 0;
+    public static final int MAX_TEXTURE_SETS = 1 << TEXTURE_SET_BITS;
+
+    // Commands with the same shader and texture set can share one state setup
+    private static final long STATE_MASK =
+            (((1L << SHADER_BITS) - 1) << SHADER_SHIFT) | (((1L << TEXTURE_SET_BITS) - 1) << TEXTURE_SET_SHIFT);
+
+    private long[] keys = new long[64];
+    private RenderBatch[] batches = new RenderBatch[64];
+    private long[] sortedKeys = new long[64];
+    private RenderBatch[] sortedBatches = new RenderBatch[64];
+    private int[] counts = new int[256];
+    private int size = 0;
+
+    public static long makeKey(int pass, int zIndex, int shader, int textureSet, int depth) {
+        // The z index is biased, so negative layers still sort below positive ones
+        long layer = (zIndex + (1 << (LAYER_BITS - 1))) & ((1L << LAYER_BITS) - 1);
+        return ((long)(pass & ((1 << PASS_BITS) - 1)) << PASS_SHIFT)
+                | (layer << LAYER_SHIFT)
+                | ((long)(shader & ((1 << SHADER_BITS) - 1)) << SHADER_SHIFT)
+                | ((long)(textureSet & (MAX_TEXTURE_SETS - 1)) << TEXTURE_SET_SHIFT)
+                | (depth & ((1L << DEPTH_BITS) - 1));
+    }
+
+    public static boolean sameState(long key, long otherKey) {
+        return (key & STATE_MASK) == (otherKey & STATE_MASK);
+    }
+
+    public void clear() {
+        for (int i=0; i < size; i++) {
+            batches[i] = null;
+            sortedBatches[i] = null;
+        }
+        size = 0;
+    }
+
+    public void submit(long key, RenderBatch batch) {
+        if (size == keys.length) {
+            grow();
+        }
+        keys[size] = key;
+        batches[size] = batch;
+        size++;
+    }
+
+    private void grow() {
+        int capacity = keys.length * 2;
+        long[] newKeys = new long[capacity];
+        RenderBatch[] newBatches = new RenderBatch[capacity];
+        System.arraycopy(keys, 0, newKeys, 0, size);
+        System.arraycopy(batches, 0, newBatches, 0, size);
+        keys = newKeys;
+        batches = newBatches;
+        sortedKeys = new long[capacity];
+        sortedBatches = new RenderBatch[capacity];
+    }
+
+    // LSD radix sort, one byte per pass. It is stable, so equal keys keep their submit order
+    public void sort() {
+        for (int shift=0; shift < Long.SIZE; shift += 8) {
+            Arrays.fill(counts, 0);
+            for (int i=0; i < size; i++) {
+                counts[(int)(keys[i] >>> shift) & 0xFF]++;
+            }
+
+            // Every key has the same byte here, this pass would not move anything
+            if (counts[(int)(keys[0] >>> shift) & 0xFF] == size) {
+                continue;
+            }
+
+            int offset = 0;
+            for (int i=0; i < counts.length; i++) {
+                int count = counts[i];
+                counts[i] = offset;
+                offset += count;
+            }
+
+            for (int i=0; i < size; i++) {
+                int digit = (int)(keys[i] >>> shift) & 0xFF;
+                int target = counts[digit]++;
+                sortedKeys[target] = keys[i];
+                sortedBatches[target] = batches[i];
+            }
+
+            long[] tmpKeys = keys;
+            keys = sortedKeys;
+            sortedKeys = tmpKeys;
+            RenderBatch[] tmpBatches = batches;
+            batches = sortedBatches;
+            sortedBatches = tmpBatches;
+        }
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public long getKey(int index) {
+        return keys[index];
+    }
+
+    public RenderBatch getBatch(int index) {
+        return batches[index];
+    }
+}
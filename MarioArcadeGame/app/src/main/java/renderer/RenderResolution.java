@@ -0,0 +1,149 @@
+package renderer;
+
+import jade.Camera;
+import jade.Window;
+import util.Settings;
+
+import static org.lwjgl.opengl.GL15.*;
+import static org.lwjgl.opengl.GL33.GL_TIME_ELAPSED;
+import static org.lwjgl.opengl.GL33.glGetQueryObjecti64;
+
+public class RenderResolution {
+    public enum Mode { NATIVE, DYNAMIC }
+
+    // Pixels per grid cell of the sprite art, the native size shows the camera's view at this density
+    private static final int TILE_TEXELS = 16;
+
+    // Dynamic scale limits and how far one adjustment may move it
+    private static final float MIN_SCALE = 0.5f;
+    private static final float SCALE_STEP = 0.05f;
+    // Frames averaged before each adjustment, so a single slow frame does not change the size
+    private static final int ADJUST_INTERVAL = 30;
+    // Timer queries are read a few frames late so the CPU never waits on the GPU
+    private static final int QUERY_FRAMES = 3;
+
+    private static Mode mode = Mode.NATIVE;
+    // GPU time the scene pass may take, leaving the rest of the frame to the editor and the present
+    private static float budgetMillis = 8.0f;
+
+    // Size of the render targets, and the part of them the scene is drawn into
+    private static int targetWidth = 0, targetHeight = 0;
+    private static float scale = 1.0f;
+
+    private static int[] queries;
+    private static boolean[] queryPending;
+    private static int frame = 0;
+    private static long sampleNanos = 0;
+    private static int samples = 0;
+
+    public static void setMode(Mode newMode) {
+        mode = newMode;
+        scale = 1.0f;
+    }
+
+    public static Mode getMode() {
+        return mode;
+    }
+
+    public static void setFrameBudget(float millis) {
+        budgetMillis = millis;
+    }
+
+    public static float getFrameBudget() {
+        return budgetMillis;
+    }
+
+    // Returns true when the render targets have to be allocated again
+    public static boolean resize(int windowWidth, int windowHeight) {
+        float aspect = Window.getTargetAspectRatio();
+        int width, height;
+        if (mode == Mode.NATIVE) {
+            // 24 by 12 cells of 16 pixels at the default projection, 384 by 192
+            width = Math.round(Camera.PROJECTION_WIDTH / Settings.GRID_WIDTH * TILE_TEXELS);
+            height = Math.round(Camera.PROJECTION_HEIGHT / Settings.GRID_HEIGHT * TILE_TEXELS);
+        } else {
+            // The largest rectangle of the target aspect ratio that fits the window
+            width = Math.max(1, Math.min(windowWidth, Math.round(windowHeight * aspect)));
+            height = Math.max(1, Math.round(width / aspect));
+        }
+
+        if (width == targetWidth && height == targetHeight) {
+            return false;
+        }
+        targetWidth = width;
+        targetHeight = height;
+        return true;
+    }
+
+    public static void beginSceneTiming() {
+        if (mode != Mode.DYNAMIC) {
+            return;
+        }
+        if (queries == null) {
+            queries = new int[QUERY_FRAMES];
+            queryPending = new boolean[QUERY_FRAMES];
+            glGenQueries(queries);
+        }
+
+        // The query of this slot was issued QUERY_FRAMES ago, take its result before reusing it
+        int slot = frame % QUERY_FRAMES;
+        if (queryPending[slot] && glGetQueryObjecti(queries[slot], GL_QUERY_RESULT_AVAILABLE) == GL_TRUE) {
+            sampleNanos += glGetQueryObjecti64(queries[slot], GL_QUERY_RESULT);
+            samples++;
+        }
+        glBeginQuery(GL_TIME_ELAPSED, queries[slot]);
+        queryPending[slot] = true;
+    }
+
+    public static void endSceneTiming() {
+        if (mode != Mode.DYNAMIC) {
+            return;
+        }
+        glEndQuery(GL_TIME_ELAPSED);
+
+        frame++;
+        if (frame % ADJUST_INTERVAL == 0) {
+            adjustScale();
+        }
+    }
+
+    private static void adjustScale() {
+        if (samples == 0) {
+            return;
+        }
+        float gpuMillis = sampleNanos / (float)samples / 1_000_000.0f;
+        sampleNanos = 0;
+        samples = 0;
+
+        // Fill cost follows the pixel count, so the side length goes with the square root of the time
+        float ideal = scale * (float)Math.sqrt(budgetMillis / Math.max(gpuMillis, 0.01f));
+
+        // Growing needs a clear margin, otherwise the scale would flip between two steps every interval
+        if (ideal < scale - SCALE_STEP / 2) {
+            scale = Math.max(MIN_SCALE, scale - SCALE_STEP);
+        } else if (ideal > scale + SCALE_STEP) {
+            scale = Math.min(1.0f, scale + SCALE_STEP);
+        }
+    }
+
+    public static int getTargetWidth() {
+        return targetWidth;
+    }
+
+    public static int getTargetHeight() {
+        return targetHeight;
+    }
+
+    // The scene only covers the bottom left of the targets when the dynamic scale is below 1
+    public static int getViewportWidth() {
+        return Math.max(1, Math.round(targetWidth * scale));
+    }
+
+    public static int getViewportHeight() {
+        return Math.max(1, Math.round(targetHeight * scale));
+    }
+
+    public static float getScale() {
+        return scale;
+    }
+}
@@ -0,0 +1,156 @@
+package renderer;
+
+public class RenderStats {
+    private static int frame = 0;
+
+    // Counters for the frame currently being rendered
+    private static long bytesUploaded = 0;
+    private static int spritesDrawn = 0;
+    private static int spritesCulled = 0;
+    private static int uniformsIssued = 0;
+    private static int uniformsSkipped = 0;
+    private static int glCallsSaved = 0;
+    private static int drawCalls = 0;
+    private static int stateChanges = 0;
+    private static long prepareNanos = 0;
+    private static long buildNanos = 0;
+    private static long drawNanos = 0;
+
+    // Totals of the last completed frame
+    private static long lastBytesUploaded = 0;
+    private static int lastSpritesDrawn = 0;
+    private static int lastSpritesCulled = 0;
+    private static int lastUniformsIssued = 0;
+    private static int lastUniformsSkipped = 0;
+    private static int lastGLCallsSaved = 0;
+    private static int lastDrawCalls = 0;
+    private static int lastStateChanges = 0;
+    private static long lastPrepareNanos = 0;
+    private static long lastBuildNanos = 0;
+    private static long lastDrawNanos = 0;
+
+    public static void beginFrame() {
+        lastBytesUploaded = bytesUploaded;
+        lastSpritesDrawn = spritesDrawn;
+        lastSpritesCulled = spritesCulled;
+        lastUniformsIssued = uniformsIssued;
+        lastUniformsSkipped = uniformsSkipped;
+        lastGLCallsSaved = glCallsSaved;
+        lastDrawCalls = drawCalls;
+        lastStateChanges = stateChanges;
+        lastPrepareNanos = prepareNanos;
+        lastBuildNanos = buildNanos;
+        lastDrawNanos = drawNanos;
+        bytesUploaded = 0;
+        spritesDrawn = 0;
+        spritesCulled = 0;
+        uniformsIssued = 0;
+        uniformsSkipped = 0;
+        glCallsSaved = 0;
+        drawCalls = 0;
+        stateChanges = 0;
+        prepareNanos = 0;
+        buildNanos = 0;
+        drawNanos = 0;
+        frame++;
+    }
+
+    public static void addBytesUploaded(long bytes) {
+        bytesUploaded += bytes;
+    }
+
+    public static void addSpritesDrawn(int count) {
+        spritesDrawn += count;
+    }
+
+    public static void addSpritesCulled(int count) {
+        spritesCulled += count;
+    }
+
+    public static void addUniformIssued() {
+        uniformsIssued++;
+    }
+
+    public static void addUniformSkipped() {
+        uniformsSkipped++;
+    }
+
+    public static void addGLCallSaved() {
+        glCallsSaved++;
+    }
+
+    public static void addGLCallSaved(int count) {
+        glCallsSaved += count;
+    }
+
+    public static void addDrawCall() {
+        drawCalls++;
+    }
+
+    public static void addStateChange() {
+        stateChanges++;
+    }
+
+    // Collecting dirty sprites, spatial index updates and migrations, all on the GL thread
+    public static void addPrepareTime(long nanos) {
+        prepareNanos += nanos;
+    }
+
+    // Vertex generation, spread over the fork-join pool when parallel prepare is on
+    public static void addBuildTime(long nanos) {
+        buildNanos += nanos;
+    }
+
+    // Upload, culling, sorting and draw calls
+    public static void addDrawTime(long nanos) {
+        drawNanos += nanos;
+    }
+
+    public static long getBytesUploaded() {
+        return lastBytesUploaded;
+    }
+
+    public static int getSpritesDrawn() {
+        return lastSpritesDrawn;
+    }
+
+    public static int getSpritesCulled() {
+        return lastSpritesCulled;
+    }
+
+    public static int getUniformsIssued() {
+        return lastUniformsIssued;
+    }
+
+    public static int getUniformsSkipped() {
+        return lastUniformsSkipped;
+    }
+
+    public static int getGLCallsSaved() {
+        return lastGLCallsSaved;
+    }
+
+    public static int getDrawCalls() {
+        return lastDrawCalls;
+    }
+
+    public static int getStateChanges() {
+        return lastStateChanges;
+    }
+
+    public static float getPrepareMillis() {
+        return lastPrepareNanos / 1_000_000.0f;
+    }
+
+    public static float getBuildMillis() {
+        return lastBuildNanos / 1_000_000.0f;
+    }
+
+    public static float getDrawMillis() {
+        return lastDrawNanos / 1_000_000.0f;
+    }
+
+    public static int getFrame() {
+        return frame;
+    }
+}
@@ -1,20 +1,73 @@
 package renderer;
 
 import components.SpriteRenderer;
+import physics2d.components.Rigidbody2D;
+import physics2d.enums.BodyType;
+import jade.Camera;
 import jade.GameObject;
+import org.joml.Vector4f;
 
+import java.lang.foreign.Arena;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
 
 public class Renderer {
+    // Batches of one z index and kind (static or dynamic)
+    private static class BatchLayer {
+        private List<RenderBatch> batches = new ArrayList<>();
+        private Map<Texture, RenderBatch> textureBatches = new HashMap<>();
+    }
+
     private final int MAX_BATCH_SIZE = 1000;
+    private final float SPATIAL_CELL_SIZE = 1.0f;
     private List<RenderBatch> batches;
+    private Map<Long, BatchLayer> layers;
+    private Map<SpriteRenderer, RenderBatch> spriteBatches;
+    // Static sprites that have moved, they stay in dynamic batches from then on
+    private Set<SpriteRenderer> demotedSprites;
+    // Sprites whose z index or texture no longer fit their batch, moved before the next draw
+    private Set<SpriteRenderer> pendingMigrations;
+    // World bounds of every sprite, used for picking without the GPU
+    private SpatialIndex spatialIndex;
+    // Owned by the scene, batch staging memory is freed with it
+    private Arena arena;
+    // Camera view in world space (minX, minY, maxX, maxY), batches outside of it are skipped
+    private Vector4f viewBounds = new Vector4f();
+    // Visible batches of the frame, sorted by z index first and then by the state they need
+    private RenderQueue renderQueue;
+    private Map<List<Texture>, Integer> textureSets;
+    // Batches with vertices to rebuild this frame
+    private List<RenderBatch> buildList;
     private static Shader currentShader;
+    private static Shader currentInstancedShader;
+
+    // Picked up by renderers created afterwards, i.e. on the next scene change
+    private static boolean instancedRendering = false;
+    // Builds the vertices of dirty batches on the fork-join pool, the GL thread only uploads and draws
+    private static boolean parallelPrepare = Runtime.getRuntime().availableProcessors() > 1;
+    // Every GL call of the sprite pipeline goes through here, swapped for a RecordingBackend when headless
+    private static RenderBackend backend = new LwjglBackend();
+    private boolean instanced;
 
-    public Renderer() {
+    public Renderer(Arena arena) {
+        this.arena = arena;
+        this.instanced = instancedRendering;
         this.batches = new ArrayList<>();
+        this.layers = new HashMap<>();
+        this.spriteBatches = new HashMap<>();
+        this.demotedSprites = Collections.newSetFromMap(new WeakHashMap<>());
+        this.pendingMigrations = new LinkedHashSet<>();
+        this.spatialIndex = new SpatialIndex(SPATIAL_CELL_SIZE);
+        this.renderQueue = new RenderQueue();
+        this.textureSets = new HashMap<>();
+        this.buildList = new ArrayList<>();
     }
 
     public void add(GameObject go) {
@@ -23,52 +76,284 @@ public class Renderer {
             add(spr);
         }
     }
-    
- private void add(SpriteRenderer sprite) {
-        boolean added = false;
-        for (RenderBatch batch : batches) {
-            if (batch.hasRoom() && batch.zIndex() == sprite.gameObject.transform.zIndex) {
-                Texture tex = sprite.getTexture();
-                if (tex == null || (batch.hasTexture(tex) || batch.hasTextureRoom())) {
-                    batch.addSprite(sprite);
-                    added = true;
-                    break;
+
+    private void add(SpriteRenderer sprite) {
+        int zIndex = sprite.gameObject.transform.zIndex;
+        boolean isStatic = isStatic(sprite);
+        Texture tex = RenderBatch.batchTexture(sprite.getTexture());
+        BatchLayer layer = layers.computeIfAbsent(layerKey(zIndex, isStatic), k -> new BatchLayer());
+
+        // Sprites sharing a texture usually end up in the batch that took it last
+        RenderBatch batch = tex != null ? layer.textureBatches.get(tex) : null;
+        if (batch == null || !batch.hasRoom()) {
+            batch = findBatch(layer, tex);
+        }
+
+        if (batch == null) {
+            batch = createBatch(zIndex, isStatic);
+            batch.start();
+            layer.batches.add(batch);
+            insertSorted(batch);
+        }
+
+        batch.addSprite(sprite);
+        spriteBatches.put(sprite, batch);
+        if (tex != null) {
+            layer.textureBatches.put(tex, batch);
+        }
+    }
+
+    private RenderBatch findBatch(BatchLayer layer, Texture tex) {
+        for (RenderBatch batch : layer.batches) {
+            if (batch.hasRoom() && (tex == null || batch.hasTexture(tex) || batch.hasTextureRoom())) {
+                return batch;
+            }
+        }
+
+        return null;
+    }
+
+    private void insertSorted(RenderBatch batch) {
+        // Insert after the batches of the same z index, so they keep their draw order
+        int low = 0;
+        int high = batches.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (batches.get(mid).compareTo(batch) <= 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        batches.add(low, batch);
+    }
+
+    private static long layerKey(int zIndex, boolean isStatic) {
+        return ((long)zIndex << 1) | (isStatic ? 1 : 0);
+    }
+
+    private int textureSetId(RenderBatch batch) {
+        if (batch.getTextureSetId() < 0) {
+            if (textureSets.size() >= RenderQueue.MAX_TEXTURE_SETS) {
+                // Out of ids, start over and let every batch intern its set again
+                textureSets.clear();
+                for (RenderBatch b : batches) {
+                    b.setTextureSetId(-1);
                 }
-                  }
+            }
+            int id = textureSets.computeIfAbsent(new ArrayList<>(batch.getTextures()), k -> textureSets.size());
+            batch.setTextureSetId(id);
+        }
+        return batch.getTextureSetId();
+    }
+
+    private RenderBatch createBatch(int zIndex, boolean isStatic) {
+        if (instanced) {
+            return new InstancedRenderBatch(MAX_BATCH_SIZE, zIndex, isStatic, this);
+        }
+        return new RenderBatch(MAX_BATCH_SIZE, zIndex, isStatic, this);
+    }
+
+    private boolean isStatic(SpriteRenderer sprite) {
+        if (demotedSprites.contains(sprite)) {
+            return false;
+        }
+        if (sprite.isStatic()) {
+            return true;
+        }
+
+        Rigidbody2D rb = sprite.gameObject.getComponent(Rigidbody2D.class);
+        return rb != null && rb.getBodyType() == BodyType.Static;
+    }
+
+    // Batches that take a texture in prepare() become its fast lookup, the same as in add()
+    void textureAdded(RenderBatch batch, Texture tex) {
+        BatchLayer layer = layers.get(layerKey(batch.zIndex(), batch.isStatic()));
+        if (layer != null) {
+            layer.textureBatches.put(tex, batch);
         }
+    }
+
+    void demote(SpriteRenderer sprite) {
+        demotedSprites.add(sprite);
+        queueMigration(sprite);
+    }
 
-        if (!added) {
-            RenderBatch newBatch = new RenderBatch(MAX_BATCH_SIZE,
-                    sprite.gameObject.transform.zIndex, this);
-            newBatch.start();
-            batches.add(newBatch);
-            newBatch.addSprite(sprite);
-            Collections.sort(batches);
+    void queueMigration(SpriteRenderer sprite) {
+        pendingMigrations.add(sprite);
+    }
+
+    private void applyMigrations() {
+        for (SpriteRenderer sprite : pendingMigrations) {
+            RenderBatch batch = spriteBatches.remove(sprite);
+            if (batch == null) {
+                // Destroyed after it was queued
+                continue;
+            }
+            batch.destroyIfExists(sprite.gameObject);
+            add(sprite);
         }
+        pendingMigrations.clear();
     }
 
     public void destroyGameObject(GameObject go) {
-        if (go.getComponent(SpriteRenderer.class) == null) return;
+        SpriteRenderer spr = go.getComponent(SpriteRenderer.class);
+        if (spr == null) return;
+        RenderBatch batch = spriteBatches.remove(spr);
+        if (batch != null) {
+            batch.destroyIfExists(go);
+        }
+        spatialIndex.remove(spr);
+    }
+
+    // Called by the scene before its arena closes
+    public void destroy() {
         for (RenderBatch batch : batches) {
-            if (batch.destroyIfExists(go)) {
-                return;
-            }
+            batch.destroy();
         }
+        batches.clear();
+        layers.clear();
+        spriteBatches.clear();
+        pendingMigrations.clear();
+        renderQueue.clear();
     }
 
     public static void bindShader(Shader shader) {
         currentShader = shader;
     }
 
+    public static void bindShader(Shader shader, Shader instancedShader) {
+        currentShader = shader;
+        currentInstancedShader = instancedShader;
+    }
+
     public static Shader getBoundShader() {
         return currentShader;
     }
 
-    public void render() {
-        currentShader.use();
+    public static Shader getBoundInstancedShader() {
+        return currentInstancedShader;
+    }
+
+    public static void setInstancedRendering(boolean enabled) {
+        instancedRendering = enabled;
+    }
+
+    public static boolean isInstancedRendering() {
+        return instancedRendering;
+    }
+
+    public static void setParallelPrepare(boolean enabled) {
+        parallelPrepare = enabled;
+    }
+
+    public static boolean isParallelPrepare() {
+        return parallelPrepare;
+    }
+
+    public static void setBackend(RenderBackend renderBackend) {
+        backend = renderBackend;
+        GLState.invalidate();
+    }
+
+    public static RenderBackend getBackend() {
+        return backend;
+    }
+
+    // Larger values were drawn later in the last frame and cover smaller ones, -1 when the sprite was not drawn
+    public long getDrawOrder(SpriteRenderer sprite) {
+        RenderBatch batch = spriteBatches.get(sprite);
+        if (batch == null || batch.getQueuePosition() < 0) {
+            return -1;
+        }
+        return ((long)batch.getQueuePosition() << 32) | batch.slotOf(sprite);
+    }
+
+    public SpatialIndex getSpatialIndex() {
+        return this.spatialIndex;
+    }
+
+    Arena getArena() {
+        return this.arena;
+    }
+
+    Vector4f getViewBounds() {
+        return this.viewBounds;
+    }
+
+    public void render(Camera camera) {
+        viewBounds.set(camera.position.x, camera.position.y,
+                camera.position.x + camera.getProjectionSize().x * camera.getZoom(),
+                camera.position.y + camera.getProjectionSize().y * camera.getZoom());
+        CameraBuffer.upload(camera);
+
+        long prepareStart = System.nanoTime();
+        buildList.clear();
+        for (int i = 0; i < batches.size(); i++) {
+            RenderBatch batch = batches.get(i);
+            batch.prepare();
+            if (batch.hasVertexWork()) {
+                buildList.add(batch);
+            }
+        }
+
+        long buildStart = System.nanoTime();
+        if (parallelPrepare && buildList.size() > 1) {
+            buildList.parallelStream().forEach(RenderBatch::buildVertices);
+        } else {
+            for (int i = 0; i < buildList.size(); i++) {
+                buildList.get(i).buildVertices();
+            }
+        }
+        long buildEnd = System.nanoTime();
+
+        for (int i = 0; i < buildList.size(); i++) {
+            buildList.get(i).finishVertices();
+        }
+        applyMigrations();
+
+        long drawStart = System.nanoTime();
+        RenderStats.addPrepareTime((buildStart - prepareStart) + (drawStart - buildEnd));
+        RenderStats.addBuildTime(buildEnd - buildStart);
+
+        renderQueue.clear();
         for (int i = 0; i < batches.size(); i++) {
             RenderBatch batch = batches.get(i);
-            batch.render();
+            batch.setQueuePosition(-1);
+            if (batch.cull()) {
+                renderQueue.submit(RenderQueue.makeKey(RenderQueue.PASS_SPRITES, batch.zIndex(),
+                        batch.getShaderKey(), textureSetId(batch), i), batch);
+            }
+        }
+        renderQueue.sort();
+        for (int i = 0; i < renderQueue.size(); i++) {
+            renderQueue.getBatch(i).setQueuePosition(i);
+        }
+
+        drawQueue(true);
+        RenderStats.addDrawTime(System.nanoTime() - drawStart);
+    }
+
+    // Draws the batches queued by the last render() again with whatever shaders are bound,
+    // without preparing, uploading or counting anything. Used by passes such as picking
+    public void drawPrepared() {
+        drawQueue(false);
+    }
+
+    private void drawQueue(boolean countStats) {
+        // Runs of batches needing the same program and textures only set them up once
+        for (int i = 0; i < renderQueue.size(); i++) {
+            RenderBatch batch = renderQueue.getBatch(i);
+            if (i == 0 || !RenderQueue.sameState(renderQueue.getKey(i), renderQueue.getKey(i - 1))) {
+                batch.bindState();
+                if (countStats) {
+                    RenderStats.addStateChange();
+                }
+            }
+            batch.draw();
+            if (countStats) {
+                RenderStats.addDrawCall();
+            }
         }
     }
 }
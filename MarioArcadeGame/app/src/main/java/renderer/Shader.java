@@ -3,22 +3,27 @@ package renderer;
 
 
 import org.joml.*;
-import org.lwjgl.BufferUtils;
 
 import javax.print.DocFlavor;
 import java.io.IOException;
-import java.nio.FloatBuffer;
 import java.nio.file.Files;
 import java.nio.file.Paths;
-
-import static org.lwjgl.opengl.GL11.GL_FALSE;
-import static org.lwjgl.opengl.GL20.*;
-import static org.lwjgl.opengl.GL20.glGetShaderInfoLog;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
 
 public class Shader {
+    // An active uniform and the last value uploaded to it
+    private static class Uniform {
+        int location;
+        float[] floatValues;
+        int[] intValues;
+    }
 
     private int shaderProgramID;
-    private boolean beingUsed = false;
+    private Map<String, Uniform> uniforms = new HashMap<>();
+    private float[] scratchFloats = new float[16];
+    private int[] scratchInts = new int[1];
 
     private String vertexSource;
     private String fragmentSource;
@@ -62,126 +67,149 @@ public class Shader {
     }
 
     public void compile() {
-        // ============================================================
-        // Compile and link shaders
-        // ============================================================
-        int vertexID, fragmentID;
-
-        // First load and compile the vertex shader
-        vertexID = glCreateShader(GL_VERTEX_SHADER);
-        // Pass the shader source to the GPU
-        glShaderSource(vertexID, vertexSource);
-        glCompileShader(vertexID);
-
-        // Check for errors in compilation
-        int success = glGetShaderi(vertexID, GL_COMPILE_STATUS);
-        if (success == GL_FALSE) {
-            int len = glGetShaderi(vertexID, GL_INFO_LOG_LENGTH);
-            System.out.println("ERROR: '" + filepath + "'\n\tVertex shader compilation failed.");
-            System.out.println(glGetShaderInfoLog(vertexID, len));
-            assert false : "";
-        }
-
-        // First load and compile the vertex shader
-        fragmentID = glCreateShader(GL_FRAGMENT_SHADER);
-        // Pass the shader source to the GPU
-        glShaderSource(fragmentID, fragmentSource);
-        glCompileShader(fragmentID);
-
-        // Check for errors in compilation
-        success = glGetShaderi(fragmentID, GL_COMPILE_STATUS);
-        if (success == GL_FALSE) {
-            int len = glGetShaderi(fragmentID, GL_INFO_LOG_LENGTH);
-            System.out.println("ERROR: '" + filepath + "'\n\tFragment shader compilation failed.");
-            System.out.println(glGetShaderInfoLog(fragmentID, len));
-            assert false : "";
+        RenderBackend backend = Renderer.getBackend();
+        shaderProgramID = backend.createProgram(filepath, vertexSource, fragmentSource);
+
+        uniforms.clear();
+        for (Map.Entry<String, Integer> entry : backend.getUniformLocations(shaderProgramID).entrySet()) {
+            Uniform uniform = new Uniform();
+            uniform.location = entry.getValue();
+            uniforms.put(entry.getKey(), uniform);
         }
 
-
-// Link shaders and check for errors
-        shaderProgramID = glCreateProgram();
-        glAttachShader(shaderProgramID, vertexID);
-        glAttachShader(shaderProgramID, fragmentID);
-        glLinkProgram(shaderProgramID);
-
-        // Check for linking errors
-        success = glGetProgrami(shaderProgramID, GL_LINK_STATUS);
-        if (success == GL_FALSE) {
-            int len = glGetProgrami(shaderProgramID, GL_INFO_LOG_LENGTH);
-            System.out.println("ERROR: '" + filepath + "'\n\tLinking of shaders failed.");
-            System.out.println(glGetProgramInfoLog(shaderProgramID, len));
-            assert false : "";
-        }
+        // Every shader reading the camera shares the same uniform buffer
+        backend.bindUniformBlock(shaderProgramID, CameraBuffer.BLOCK_NAME, CameraBuffer.BINDING);
     }
 
     public void use() {
-        if (!beingUsed) {
-            // Bind shader program
-            glUseProgram(shaderProgramID);
-            beingUsed = true;
-        }
+        GLState.useProgram(shaderProgramID);
     }
 
     public void detach() {
-        glUseProgram(0);
-        beingUsed = false;
+        GLState.useProgram(0);
     }
 
     public void uploadMat4f(String varName, Matrix4f mat4) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+        Uniform uniform = findUniform(varName);
+        if (uniform == null) return;
         use();
-        FloatBuffer matBuffer = BufferUtils.createFloatBuffer(16);
-        mat4.get(matBuffer);
-        glUniformMatrix4fv(varLocation, false, matBuffer);
+        mat4.get(scratchFloats);
+        if (updateCache(uniform, scratchFloats, 16)) {
+            Renderer.getBackend().uniformMatrix4(uniform.location, uniform.floatValues);
+        }
     }
 
     public void uploadMat3f(String varName, Matrix3f mat3) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+        Uniform uniform = findUniform(varName);
+        if (uniform == null) return;
         use();
-        FloatBuffer matBuffer = BufferUtils.createFloatBuffer(9);
-        mat3.get(matBuffer);
-        glUniformMatrix3fv(varLocation, false, matBuffer);
+        mat3.get(scratchFloats);
+        if (updateCache(uniform, scratchFloats, 9)) {
+            Renderer.getBackend().uniformMatrix3(uniform.location, uniform.floatValues);
+        }
     }
 
     public void uploadVec4f(String varName, Vector4f vec) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+        Uniform uniform = findUniform(varName);
+        if (uniform == null) return;
         use();
-        glUniform4f(varLocation, vec.x, vec.y, vec.z, vec.w);
+        scratchFloats[0] = vec.x;
+        scratchFloats[1] = vec.y;
+        scratchFloats[2] = vec.z;
+        scratchFloats[3] = vec.w;
+        if (updateCache(uniform, scratchFloats, 4)) {
+            Renderer.getBackend().uniform4f(uniform.location, vec.x, vec.y, vec.z, vec.w);
+        }
     }
 
     public void uploadVec3f(String varName, Vector3f vec) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+        Uniform uniform = findUniform(varName);
+        if (uniform == null) return;
         use();
-        glUniform3f(varLocation, vec.x, vec.y, vec.z);
+        scratchFloats[0] = vec.x;
+        scratchFloats[1] = vec.y;
+        scratchFloats[2] = vec.z;
+        if (updateCache(uniform, scratchFloats, 3)) {
+            Renderer.getBackend().uniform3f(uniform.location, vec.x, vec.y, vec.z);
+        }
     }
 
     public void uploadVec2f(String varName, Vector2f vec) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+        Uniform uniform = findUniform(varName);
+        if (uniform == null) return;
         use();
-        glUniform2f(varLocation, vec.x, vec.y);
+        scratchFloats[0] = vec.x;
+        scratchFloats[1] = vec.y;
+        if (updateCache(uniform, scratchFloats, 2)) {
+            Renderer.getBackend().uniform2f(uniform.location, vec.x, vec.y);
+        }
     }
 
     public void uploadFloat(String varName, float val) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+        Uniform uniform = findUniform(varName);
+        if (uniform == null) return;
         use();
-        glUniform1f(varLocation, val);
+        scratchFloats[0] = val;
+        if (updateCache(uniform, scratchFloats, 1)) {
+            Renderer.getBackend().uniform1f(uniform.location, val);
+        }
     }
 
     public void uploadInt(String varName, int val) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+        Uniform uniform = findUniform(varName);
+        if (uniform == null) return;
         use();
-        glUniform1i(varLocation, val);
+        scratchInts[0] = val;
+        if (updateCache(uniform, scratchInts, 1)) {
+            Renderer.getBackend().uniform1i(uniform.location, val);
+        }
     }
 
     public void uploadTexture(String varName, int slot) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
-        use();
-        glUniform1i(varLocation, slot);
+        uploadInt(varName, slot);
     }
 
     public void uploadIntArray(String varName, int[] array) {
-        int varLocation = glGetUniformLocation(shaderProgramID, varName);
+        Uniform uniform = findUniform(varName);
+        if (uniform == null) return;
         use();
-        glUniform1iv(varLocation, array);
+        if (updateCache(uniform, array, array.length)) {
+            Renderer.getBackend().uniform1iv(uniform.location, array);
+        }
+    }
+
+    // Uniforms the compiler removed are not in the map, uploading to them does nothing
+    private Uniform findUniform(String varName) {
+        return uniforms.get(varName);
+    }
+
+    private boolean updateCache(Uniform uniform, float[] values, int count) {
+        if (uniform.floatValues != null && uniform.floatValues.length == count &&
+                Arrays.equals(uniform.floatValues, 0, count, values, 0, count)) {
+            RenderStats.addUniformSkipped();
+            return false;
+        }
+
+        if (uniform.floatValues == null || uniform.floatValues.length != count) {
+            uniform.floatValues = new float[count];
+        }
+        System.arraycopy(values, 0, uniform.floatValues, 0, count);
+        RenderStats.addUniformIssued();
+        return true;
+    }
+
+    private boolean updateCache(Uniform uniform, int[] values, int count) {
+        if (uniform.intValues != null && uniform.intValues.length == count &&
+                Arrays.equals(uniform.intValues, 0, count, values, 0, count)) {
+            RenderStats.addUniformSkipped();
+            return false;
+        }
+
+        if (uniform.intValues == null || uniform.intValues.length != count) {
+            uniform.intValues = new int[count];
+        }
+        System.arraycopy(values, 0, uniform.intValues, 0, count);
+        RenderStats.addUniformIssued();
+        return true;
     }
 }
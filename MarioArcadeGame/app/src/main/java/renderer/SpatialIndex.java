@@ -0,0 +1,126 @@
+package renderer;
+
+import components.SpriteRenderer;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class SpatialIndex {
+    private static class Entry {
+        SpriteRenderer sprite;
+        float minX, minY, maxX, maxY;
+        int cellMinX, cellMinY, cellMaxX, cellMaxY;
+        int queryStamp;
+    }
+
+    // Uniform grid over world space, every entry is listed in each cell its bounds touch
+    private float cellSize;
+    private Map<Long, List<Entry>> cells;
+    private Map<SpriteRenderer, Entry> entries;
+    private int queryStamp = 0;
+
+    public SpatialIndex(float cellSize) {
+        this.cellSize = cellSize;
+        this.cells = new HashMap<>();
+        this.entries = new HashMap<>();
+    }
+
+    public void update(SpriteRenderer sprite, float minX, float minY, float maxX, float maxY) {
+        int cellMinX = cellCoord(minX);
+        int cellMinY = cellCoord(minY);
+        int cellMaxX = cellCoord(maxX);
+        int cellMaxY = cellCoord(maxY);
+
+        Entry entry = entries.get(sprite);
+        if (entry == null) {
+            entry = new Entry();
+            entry.sprite = sprite;
+            entries.put(sprite, entry);
+        } else if (entry.cellMinX != cellMinX || entry.cellMinY != cellMinY ||
+                entry.cellMaxX != cellMaxX || entry.cellMaxY != cellMaxY) {
+            removeFromCells(entry);
+        } else {
+            // Still in the same cells, only the bounds moved
+            setBounds(entry, minX, minY, maxX, maxY);
+            return;
+        }
+
+        setBounds(entry, minX, minY, maxX, maxY);
+        entry.cellMinX = cellMinX;
+        entry.cellMinY = cellMinY;
+        entry.cellMaxX = cellMaxX;
+        entry.cellMaxY = cellMaxY;
+        for (int x=cellMinX; x <= cellMaxX; x++) {
+            for (int y=cellMinY; y <= cellMaxY; y++) {
+                cells.computeIfAbsent(cellKey(x, y), k -> new ArrayList<>()).add(entry);
+            }
+        }
+    }
+
+    public void remove(SpriteRenderer sprite) {
+        Entry entry = entries.remove(sprite);
+        if (entry != null) {
+            removeFromCells(entry);
+        }
+    }
+
+    // Adds every sprite whose bounds overlap the rectangle to result, each sprite once
+    public void query(float minX, float minY, float maxX, float maxY, List<SpriteRenderer> result) {
+        queryStamp++;
+        int cellMinX = cellCoord(minX);
+        int cellMinY = cellCoord(minY);
+        int cellMaxX = cellCoord(maxX);
+        int cellMaxY = cellCoord(maxY);
+        for (int x=cellMinX; x <= cellMaxX; x++) {
+            for (int y=cellMinY; y <= cellMaxY; y++) {
+                List<Entry> cell = cells.get(cellKey(x, y));
+                if (cell == null) {
+                    continue;
+                }
+
+                for (Entry entry : cell) {
+                    if (entry.queryStamp == queryStamp) {
+                        continue;
+                    }
+                    entry.queryStamp = queryStamp;
+                    if (entry.maxX >= minX && entry.minX <= maxX && entry.maxY >= minY && entry.minY <= maxY) {
+                        result.add(entry.sprite);
+                    }
+                }
+            }
+        }
+    }
+
+    private void setBounds(Entry entry, float minX, float minY, float maxX, float maxY) {
+        entry.minX = minX;
+        entry.minY = minY;
+        entry.maxX = maxX;
+        entry.maxY = maxY;
+    }
+
+    private void removeFromCells(Entry entry) {
+        for (int x=entry.cellMinX; x <= entry.cellMaxX; x++) {
+            for (int y=entry.cellMinY; y <= entry.cellMaxY; y++) {
+                long key = cellKey(x, y);
+                List<Entry> cell = cells.get(key);
+                if (cell == null) {
+                    continue;
+                }
+                cell.remove(entry);
+                if (cell.isEmpty()) {
+                    cells.remove(key);
+                }
+            }
+        }
+    }
+
+    private int cellCoord(float value) {
+        return (int)Math.floor(value / cellSize);
+    }
+
+    private static long cellKey(int x, int y) {
+        return ((long)x << 32) | (y & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,64 @@
+package renderer;
+
+import components.NonPickable;
+import components.SpriteRenderer;
+import jade.GameObject;
+import jade.MouseListener;
+import jade.Window;
+import org.joml.Vector2f;
+import org.joml.Vector2i;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+// Answers picks from the renderer's index of sprite bounds, no GPU work or readback
+public class SpatialPicker implements Picker {
+    private List<SpriteRenderer> candidates = new ArrayList<>();
+
+    @Override
+    public GameObject pick(int x, int y) {
+        Vector2f world = MouseListener.screenToWorld(new Vector2f(x, y));
+        candidates.clear();
+        getIndex().query(world.x, world.y, world.x, world.y, candidates);
+
+        // The sprite drawn last in the previous frame is the one on top
+        Renderer renderer = Window.getScene().getRenderer();
+        GameObject top = null;
+        long topOrder = -1;
+        for (SpriteRenderer sprite : candidates) {
+            GameObject go = sprite.gameObject;
+            if (go.getComponent(NonPickable.class) != null) {
+                continue;
+            }
+            long order = renderer.getDrawOrder(sprite);
+            if (top == null || order > topOrder) {
+                top = go;
+                topOrder = order;
+            }
+        }
+
+        return top;
+    }
+
+    @Override
+    public CompletableFuture<List<GameObject>> pickRect(Vector2i start, Vector2i end) {
+        Vector2f worldStart = MouseListener.screenToWorld(new Vector2f(start.x, start.y));
+        Vector2f worldEnd = MouseListener.screenToWorld(new Vector2f(end.x, end.y));
+        candidates.clear();
+        getIndex().query(Math.min(worldStart.x, worldEnd.x), Math.min(worldStart.y, worldEnd.y),
+                Math.max(worldStart.x, worldEnd.x), Math.max(worldStart.y, worldEnd.y), candidates);
+
+        List<GameObject> pickedObjs = new ArrayList<>();
+        for (SpriteRenderer sprite : candidates) {
+            if (sprite.gameObject.getComponent(NonPickable.class) == null) {
+                pickedObjs.add(sprite.gameObject);
+            }
+        }
+        return CompletableFuture.completedFuture(pickedObjs);
+    }
+
+    private SpatialIndex getIndex() {
+        return Window.getScene().getRenderer().getSpatialIndex();
+    }
+}
@@ -0,0 +1,92 @@
+package renderer;
+
+import org.joml.Vector2f;
+import org.joml.Vector4f;
+
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.VarHandle;
+
+// Writes sprite quads into off-heap memory. Touches neither GL nor the heap, so it is safe off the GL thread
+public class SpriteVertexBuilder {
+    // Native order accessors taking (segment, byte offset)
+    static final VarHandle BYTE = ValueLayout.JAVA_BYTE.varHandle();
+    static final VarHandle SHORT = ValueLayout.JAVA_SHORT.varHandle();
+    static final VarHandle INT = ValueLayout.JAVA_INT.varHandle();
+    static final VarHandle FLOAT = ValueLayout.JAVA_FLOAT.varHandle();
+
+    // Vertex
+    // ======
+    // Pos               Color          tex coords          entity id    tex id
+    // float, float,     4 x ubyte      ushort, ushort      uint         ubyte + 3 padding
+    static final int POS_SIZE = 2;
+    static final int COLOR_SIZE = 4;
+    static final int TEX_COORDS_SIZE = 2;
+    static final int TEX_ID_SIZE = 1;
+    static final int ENTITY_ID_SIZE = 1;
+
+    static final int POS_OFFSET = 0;
+    static final int COLOR_OFFSET = POS_OFFSET + POS_SIZE * Float.BYTES;
+    static final int TEX_COORDS_OFFSET = COLOR_OFFSET + COLOR_SIZE;
+    static final int ENTITY_ID_OFFSET = TEX_COORDS_OFFSET + TEX_COORDS_SIZE * Short.BYTES;
+    static final int TEX_ID_OFFSET = ENTITY_ID_OFFSET + ENTITY_ID_SIZE * Integer.BYTES;
+    static final int VERTEX_SIZE_BYTES = TEX_ID_OFFSET + 4;
+    static final int SPRITE_SIZE_BYTES = 4 * VERTEX_SIZE_BYTES;
+
+    // Corner offsets of the unit quad, in the order of the sprite's tex coords
+    private static final float[] CORNER_X = {0.5f, 0.5f, -0.5f, -0.5f};
+    private static final float[] CORNER_Y = {0.5f, -0.5f, -0.5f, 0.5f};
+
+    public static void writeSprite(MemorySegment segment, long offset,
+                                   float x, float y, float scaleX, float scaleY, float rotation,
+                                   Vector2f[] texCoords, Vector4f atlasRegion, Vector4f color,
+                                   int entityId, int texSlot) {
+        byte r = toUnsignedByte(color.x);
+        byte g = toUnsignedByte(color.y);
+        byte b = toUnsignedByte(color.z);
+        byte a = toUnsignedByte(color.w);
+
+        float cos = 1.0f;
+        float sin = 0.0f;
+        if (rotation != 0.0f) {
+            double angle = Math.toRadians(rotation);
+            cos = (float)Math.cos(angle);
+            sin = (float)Math.sin(angle);
+        }
+
+        for (int i=0; i < 4; i++) {
+            // Scale the corner, then rotate it around the sprite's position
+            float localX = CORNER_X[i] * scaleX;
+            float localY = CORNER_Y[i] * scaleY;
+            FLOAT.set(segment, offset + POS_OFFSET, x + cos * localX - sin * localY);
+            FLOAT.set(segment, offset + POS_OFFSET + 4, y + sin * localX + cos * localY);
+
+            BYTE.set(segment, offset + COLOR_OFFSET, r);
+            BYTE.set(segment, offset + COLOR_OFFSET + 1, g);
+            BYTE.set(segment, offset + COLOR_OFFSET + 2, b);
+            BYTE.set(segment, offset + COLOR_OFFSET + 3, a);
+
+            float u = texCoords[i].x;
+            float v = texCoords[i].y;
+            if (atlasRegion != null) {
+                u = atlasRegion.x + u * atlasRegion.z;
+                v = atlasRegion.y + v * atlasRegion.w;
+            }
+            SHORT.set(segment, offset + TEX_COORDS_OFFSET, toUnsignedShort(u));
+            SHORT.set(segment, offset + TEX_COORDS_OFFSET + 2, toUnsignedShort(v));
+
+            INT.set(segment, offset + ENTITY_ID_OFFSET, entityId);
+            BYTE.set(segment, offset + TEX_ID_OFFSET, (byte)texSlot);
+
+            offset += VERTEX_SIZE_BYTES;
+        }
+    }
+
+    static byte toUnsignedByte(float value) {
+        return (byte)Math.round(Math.max(0.0f, Math.min(1.0f, value)) * 255.0f);
+    }
+
+    static short toUnsignedShort(float value) {
+        return (short)Math.round(Math.max(0.0f, Math.min(1.0f, value)) * 65535.0f);
+    }
+}
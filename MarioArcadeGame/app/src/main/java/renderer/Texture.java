@@ -7,7 +7,6 @@ import org.lwjgl.BufferUtils;
 import java.nio.ByteBuffer;
 import java.nio.IntBuffer;
 
-import static org.lwjgl.opengl.GL11.*;
 import static org.lwjgl.stb.STBImage.*;
 
 public class Texture {
@@ -23,33 +22,23 @@ public class Texture {
 
     public Texture(int width, int height) {
         this.filepath = "Generated";
+        this.width = width;
+        this.height = height;
 
         // Generate texture on GPU
-        texID = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, texID);
+        texID = Renderer.getBackend().createTexture();
+        GLState.bindTexture(texID);
 
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_LINEAR);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_LINEAR);
-
-        glTexImage2D(GL_TEXTURE_2D, 0, GL_RGB, width, height,
-                0, GL_RGB, GL_UNSIGNED_BYTE, 0);
+        // Render targets are scaled up to the window, pixelate so the sprites stay sharp
+        Renderer.getBackend().textureImage(width, height, false, false, false, null);
     }
 
     public void init(String filepath) {
         this.filepath = filepath;
 
         // Generate texture on GPU
-        texID = glGenTextures();
-        glBindTexture(GL_TEXTURE_2D, texID);
-
-        // Set texture parameters
-        // Repeat image in both directions
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_S, GL_REPEAT);
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_WRAP_T, GL_REPEAT);
-        // When stretching the image, pixelate
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MIN_FILTER, GL_NEAREST);
-        // When shrinking an image, pixelate
-        glTexParameteri(GL_TEXTURE_2D, GL_TEXTURE_MAG_FILTER, GL_NEAREST);
+        texID = Renderer.getBackend().createTexture();
+        GLState.bindTexture(texID);
 
         IntBuffer width = BufferUtils.createIntBuffer(1);
         IntBuffer height = BufferUtils.createIntBuffer(1);
@@ -61,12 +50,11 @@ public class Texture {
             this.width = width.get(0);
             this.height = height.get(0);
 
+            // Repeat image in both directions and pixelate when stretching or shrinking
             if (channels.get(0) == 3) {
-                glTexImage2D(GL_TEXTURE_2D, 0, GL_RGB, width.get(0), height.get(0),
-                        0, GL_RGB, GL_UNSIGNED_BYTE, image);
+                Renderer.getBackend().textureImage(this.width, this.height, false, false, true, image);
             } else if (channels.get(0) == 4) {
-                glTexImage2D(GL_TEXTURE_2D, 0, GL_RGBA, width.get(0), height.get(0),
-                        0, GL_RGBA, GL_UNSIGNED_BYTE, image);
+                Renderer.getBackend().textureImage(this.width, this.height, true, false, true, image);
             } else {
                 assert false : "Error: (Texture) Unknown number of channesl '" + channels.get(0) + "'";
             }
@@ -76,14 +64,36 @@ public class Texture {
 
         stbi_image_free(image);
     }
+
+    public void initBlank(String name, int width, int height) {
+        this.filepath = name;
+        this.width = width;
+        this.height = height;
+
+        // Generate texture on GPU
+        texID = Renderer.getBackend().createTexture();
+        GLState.bindTexture(texID);
+
+        Renderer.getBackend().textureImage(width, height, true, false, false, null);
+    }
+
+    public void delete() {
+        Renderer.getBackend().deleteTexture(texID);
+        GLState.textureDeleted(texID);
+        texID = -1;
+    }
     
 /////
  public void bind() {
-        glBindTexture(GL_TEXTURE_2D, texID);
+        GLState.bindTexture(texID);
+    }
+
+    public void bind(int unit) {
+        GLState.bindTexture(unit, texID);
     }
 
     public void unbind() {
-        glBindTexture(GL_TEXTURE_2D, 0);
+        GLState.bindTexture(0);
     }
 
     public int getWidth() {
@@ -111,4 +121,9 @@ public class Texture {
                 oTex.getId() == this.texID &&
                 oTex.getFilepath().equals(this.filepath);
     }
+
+    @Override
+    public int hashCode() {
+        return texID;
+    }
 }
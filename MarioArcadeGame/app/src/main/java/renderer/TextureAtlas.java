@@ -0,0 +1,248 @@
+package renderer;
+
+import org.joml.Vector4f;
+import org.lwjgl.BufferUtils;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.lwjgl.stb.STBImage.*;
+
+public class TextureAtlas {
+    // Border around every texture, filled with copies of its edge texels so filtering never reaches a neighbour
+    private static final int PADDING = 1;
+    private static final int MIN_SIZE = 256;
+    private static final int MAX_SIZE = 4096;
+
+    private static int atlasCount = 0;
+
+    // A horizontal piece of the skyline, everything below it is taken
+    private static class Segment {
+        int x, y, width;
+
+        Segment(int x, int y, int width) {
+            this.x = x;
+            this.y = y;
+            this.width = width;
+        }
+    }
+
+    private int width, height;
+    private List<Segment> skyline;
+    private Texture texture;
+
+    // Texture coordinate offset (x, y) and scale (z, w) of each packed texture
+    private Map<Texture, Vector4f> regions;
+    private Map<Texture, int[]> placements;
+
+    private TextureAtlas(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.skyline = new ArrayList<>();
+        this.skyline.add(new Segment(0, 0, width));
+        this.regions = new HashMap<>();
+        this.placements = new HashMap<>();
+    }
+
+    public static List<TextureAtlas> pack(List<Texture> sources) {
+        int maxSize = Math.min(Renderer.getBackend().getMaxTextureSize(), MAX_SIZE);
+
+        List<Texture> sorted = new ArrayList<>(sources);
+        sorted.sort(Comparator.comparingInt(Texture::getHeight).reversed());
+
+        long totalArea = 0;
+        for (Texture tex : sorted) {
+            totalArea += (long)(tex.getWidth() + 2 * PADDING) * (tex.getHeight() + 2 * PADDING);
+        }
+        int size = MIN_SIZE;
+        while (size < maxSize && (long)size * size < totalArea) {
+            size *= 2;
+        }
+
+        List<TextureAtlas> atlases = new ArrayList<>();
+        for (Texture tex : sorted) {
+            int w = tex.getWidth() + 2 * PADDING;
+            int h = tex.getHeight() + 2 * PADDING;
+            if (w > maxSize || h > maxSize) {
+                // Too large to share an atlas, keep drawing it from its own texture
+                continue;
+            }
+
+            boolean placed = false;
+            for (TextureAtlas atlas : atlases) {
+                if (atlas.place(tex)) {
+                    placed = true;
+                    break;
+                }
+            }
+
+            if (!placed) {
+                // Sheets larger than the estimated size get an atlas big enough to hold them
+                int atlasSize = size;
+                while (atlasSize < w || atlasSize < h) {
+                    atlasSize *= 2;
+                }
+                TextureAtlas atlas = new TextureAtlas(Math.min(atlasSize, maxSize), Math.min(atlasSize, maxSize));
+                if (atlas.place(tex)) {
+                    atlases.add(atlas);
+                }
+            }
+        }
+
+        for (TextureAtlas atlas : atlases) {
+            atlas.upload();
+        }
+
+        return atlases;
+    }
+
+    private boolean place(Texture tex) {
+        int w = tex.getWidth() + 2 * PADDING;
+        int h = tex.getHeight() + 2 * PADDING;
+
+        // Bottom-left skyline: pick the lowest spot, then the leftmost one
+        int bestIndex = -1;
+        int bestX = 0;
+        int bestY = Integer.MAX_VALUE;
+        for (int i=0; i < skyline.size(); i++) {
+            int y = fitAt(i, w);
+            if (y >= 0 && y + h <= height && y < bestY) {
+                bestIndex = i;
+                bestX = skyline.get(i).x;
+                bestY = y;
+            }
+        }
+
+        if (bestIndex < 0) {
+            return false;
+        }
+
+        addSkylineLevel(bestIndex, bestX, bestY + h, w);
+        placements.put(tex, new int[]{bestX, bestY});
+        regions.put(tex, new Vector4f(
+                (bestX + PADDING) / (float)width, (bestY + PADDING) / (float)height,
+                tex.getWidth() / (float)width, tex.getHeight() / (float)height));
+        return true;
+    }
+
+    private int fitAt(int index, int w) {
+        int x = skyline.get(index).x;
+        if (x + w > width) {
+            return -1;
+        }
+
+        int y = 0;
+        int remaining = w;
+        for (int i=index; remaining > 0 && i < skyline.size(); i++) {
+            Segment segment = skyline.get(i);
+            y = Math.max(y, segment.y);
+            remaining -= segment.width;
+        }
+        return y;
+    }
+
+    private void addSkylineLevel(int index, int x, int y, int w) {
+        skyline.add(index, new Segment(x, y, w));
+
+        // Cut away the segments now covered by the new one
+        for (int i=index + 1; i < skyline.size(); i++) {
+            Segment segment = skyline.get(i);
+            Segment previous = skyline.get(i - 1);
+            int overlap = previous.x + previous.width - segment.x;
+            if (overlap <= 0) {
+                break;
+            }
+
+            segment.x += overlap;
+            segment.width -= overlap;
+            if (segment.width <= 0) {
+                skyline.remove(i);
+                i--;
+            } else {
+                break;
+            }
+        }
+
+        // Merge neighbours at the same height
+        for (int i=0; i < skyline.size() - 1; i++) {
+            Segment segment = skyline.get(i);
+            Segment next = skyline.get(i + 1);
+            if (segment.y == next.y) {
+                segment.width += next.width;
+                skyline.remove(i + 1);
+                i--;
+            }
+        }
+    }
+
+    private void upload() {
+        texture = new Texture();
+        texture.initBlank("Atlas" + atlasCount++, width, height);
+
+        IntBuffer w = BufferUtils.createIntBuffer(1);
+        IntBuffer h = BufferUtils.createIntBuffer(1);
+        IntBuffer channels = BufferUtils.createIntBuffer(1);
+        stbi_set_flip_vertically_on_load(true);
+        for (Map.Entry<Texture, int[]> entry : placements.entrySet()) {
+            Texture source = entry.getKey();
+            int[] pos = entry.getValue();
+
+            // Always ask for 4 channels, so RGB and RGBA sheets can share the atlas
+            ByteBuffer image = stbi_load(source.getFilepath(), w, h, channels, 4);
+            if (image == null) {
+                assert false : "Error: (TextureAtlas) Could not load image '" + source.getFilepath() + "'";
+                regions.remove(source);
+                continue;
+            }
+
+            ByteBuffer extruded = extrude(image, w.get(0), h.get(0));
+            Renderer.getBackend().textureSubImage(pos[0], pos[1],
+                    w.get(0) + 2 * PADDING, h.get(0) + 2 * PADDING, extruded);
+            stbi_image_free(image);
+        }
+        GLState.bindTexture(0);
+
+        placements = null;
+        skyline = null;
+    }
+
+    // Copies the RGBA image into the middle of a larger one and repeats its edge texels into the border
+    private static ByteBuffer extrude(ByteBuffer image, int w, int h) {
+        int outWidth = w + 2 * PADDING;
+        int outHeight = h + 2 * PADDING;
+        ByteBuffer extruded = BufferUtils.createByteBuffer(outWidth * outHeight * 4);
+        for (int y=0; y < outHeight; y++) {
+            int srcY = Math.min(Math.max(y - PADDING, 0), h - 1);
+            for (int x=0; x < outWidth; x++) {
+                int srcX = Math.min(Math.max(x - PADDING, 0), w - 1);
+                extruded.putInt((y * outWidth + x) * 4, image.getInt((srcY * w + srcX) * 4));
+            }
+        }
+        return extruded;
+    }
+
+    public boolean contains(Texture tex) {
+        return regions.containsKey(tex);
+    }
+
+    public Vector4f getRegion(Texture tex) {
+        return regions.get(tex);
+    }
+
+    public List<Texture> getPackedTextures() {
+        return new ArrayList<>(regions.keySet());
+    }
+
+    public Texture getTexture() {
+        return texture;
+    }
+
+    public void delete() {
+        texture.delete();
+    }
+}
@@ -4,10 +4,13 @@ import components.Spritesheet;
 import jade.Sound;
 import renderer.Shader;
 import renderer.Texture;
+import renderer.TextureAtlas;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 public class AssetPool {
@@ -15,6 +18,9 @@ public class AssetPool {
     private static Map<String, Texture> textures = new HashMap<>();
     private static Map<String, Spritesheet> spritesheets = new HashMap<>();
     private static Map<String, Sound> sounds = new HashMap<>();
+    private static List<TextureAtlas> atlases = new ArrayList<>();
+    private static Map<Texture, TextureAtlas> textureAtlases = new HashMap<>();
+    private static boolean atlasesOutdated = false;
 
     public static Shader getShader(String resourceName) {
         File file = new File(resourceName);
@@ -44,9 +50,41 @@ public class AssetPool {
         File file = new File(resourceName);
         if (!AssetPool.spritesheets.containsKey(file.getAbsolutePath())) {
             AssetPool.spritesheets.put(file.getAbsolutePath(), spritesheet);
+            atlasesOutdated = true;
         }
     }
 
+    public static void packSpritesheets() {
+        if (!atlasesOutdated) {
+            return;
+        }
+        atlasesOutdated = false;
+
+        for (TextureAtlas atlas : atlases) {
+            atlas.delete();
+        }
+        textureAtlases.clear();
+
+        List<Texture> sheetTextures = new ArrayList<>();
+        for (Spritesheet sheet : spritesheets.values()) {
+            Texture tex = sheet.getTexture();
+            if (tex != null && !sheetTextures.contains(tex)) {
+                sheetTextures.add(tex);
+            }
+        }
+
+        atlases = TextureAtlas.pack(sheetTextures);
+        for (TextureAtlas atlas : atlases) {
+            for (Texture tex : atlas.getPackedTextures()) {
+                textureAtlases.put(tex, atlas);
+            }
+        }
+    }
+
+    public static TextureAtlas getAtlas(Texture texture) {
+        return textureAtlases.get(texture);
+    }
+
     public static Spritesheet getSpritesheet(String resourceName) {
         File file = new File(resourceName);
         if (!AssetPool.spritesheets.containsKey(file.getAbsolutePath())) {
@@ -1,4 +1,4 @@
-package utils;
+package util;
 
 public class Settings {
     public static float GRID_WIDTH = 0.25f;
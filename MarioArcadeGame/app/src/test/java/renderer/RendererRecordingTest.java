@@ -0,0 +1,143 @@
+package renderer;
+
+import components.SpriteRenderer;
+import jade.Camera;
+import jade.GameObject;
+import jade.Transform;
+import org.joml.Vector2f;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.lang.foreign.Arena;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RendererRecordingTest {
+    private RenderBackend previousBackend;
+    private RecordingBackend backend;
+    private Arena arena;
+    private Renderer renderer;
+    private Camera camera;
+
+    @BeforeEach
+    void setUp() {
+        previousBackend = Renderer.getBackend();
+        backend = new RecordingBackend(1920);
+        Renderer.setBackend(backend);
+
+        // Gradle runs the tests from the app directory, where the game finds its assets too
+        Shader shader = new Shader("assets/shaders/default.glsl");
+        shader.compile();
+        Renderer.bindShader(shader);
+
+        arena = Arena.ofShared();
+        renderer = new Renderer(arena);
+        camera = new Camera(new Vector2f());
+    }
+
+    @AfterEach
+    void tearDown() {
+        Renderer.bindShader(null, null);
+        Renderer.setBackend(previousBackend);
+        arena.close();
+    }
+
+    private SpriteRenderer addSprite(float x, float y, int zIndex) {
+        GameObject go = new GameObject("Sprite");
+        go.addComponent(new Transform(new Vector2f(x, y), new Vector2f(0.25f, 0.25f)));
+        go.transform = go.getComponent(Transform.class);
+        go.transform.zIndex = zIndex;
+
+        SpriteRenderer spr = new SpriteRenderer();
+        go.addComponent(spr);
+        renderer.add(go);
+        return spr;
+    }
+
+    private void renderFrame() {
+        backend.clear();
+        RenderStats.beginFrame();
+        renderer.render(camera);
+        // Moves the counters of the frame into what the getters report
+        RenderStats.beginFrame();
+    }
+
+    @Test
+    void countsDrawsStateChangesAndUploads() {
+        SpriteRenderer moving = addSprite(1.0f, 1.0f, 0);
+        addSprite(1.5f, 1.0f, 0);
+        addSprite(2.0f, 1.0f, 0);
+        addSprite(5.0f, 1.0f, 1);
+
+        // One batch per z index, both need the same program and textures
+        renderFrame();
+        assertEquals(2, backend.getDrawCalls());
+        assertEquals(2, backend.count("drawElements"));
+        assertEquals(1, RenderStats.getStateChanges());
+        assertEquals(CameraBuffer.SIZE_BYTES + 4 * SpriteVertexBuilder.SPRITE_SIZE_BYTES, backend.getBytesUploaded());
+        assertEquals(backend.getBytesUploaded(), RenderStats.getBytesUploaded());
+        assertEquals(backend.getDrawCalls(), RenderStats.getDrawCalls());
+
+        // Nothing changed, nothing is uploaded again
+        renderFrame();
+        assertEquals(2, backend.getDrawCalls());
+        assertEquals(1, RenderStats.getStateChanges());
+        assertEquals(0, backend.getBytesUploaded());
+
+        // Only the slot of the moved sprite is uploaded
+        moving.gameObject.transform.position.x += 0.25f;
+        moving.setDirty();
+        renderFrame();
+        assertEquals(2, backend.getDrawCalls());
+        assertEquals(SpriteVertexBuilder.SPRITE_SIZE_BYTES, backend.getBytesUploaded());
+        assertEquals(backend.getBytesUploaded(), RenderStats.getBytesUploaded());
+    }
+
+    @Test
+    void cullsBatchesOutsideTheGivenCamera() {
+        addSprite(1.0f, 1.0f, 0);
+        addSprite(5.0f, 1.0f, 1);
+        renderFrame();
+        assertEquals(2, backend.getDrawCalls());
+
+        // The view now starts at x = 4, only the sprite on z index 1 is inside it
+        camera.position.x = 4.0f;
+        renderFrame();
+        assertEquals(1, backend.getDrawCalls());
+        assertEquals(1, RenderStats.getStateChanges());
+        assertEquals(1, RenderStats.getSpritesCulled());
+        assertEquals(CameraBuffer.SIZE_BYTES, backend.getBytesUploaded());
+    }
+
+    @Test
+    void destroyFreesTheBatchBuffers() {
+        addSprite(1.0f, 1.0f, 0);
+        addSprite(5.0f, 1.0f, 1);
+        renderFrame();
+
+        backend.clear();
+        renderer.destroy();
+        assertEquals(2, backend.count("deleteVertexArray"));
+        // Vertex, index and cull index buffer of each batch
+        assertEquals(6, backend.count("deleteBuffer"));
+    }
+
+    @Test
+    void drawPreparedReusesWhatTheFrameCulled() {
+        SpriteRenderer removed = addSprite(1.0f, 1.0f, 0);
+        addSprite(1.5f, 1.0f, 0);
+        addSprite(2.0f, 1.0f, 0);
+        renderFrame();
+
+        // A pass drawing after the frame sees the sprites the frame uploaded, even if one is gone by then
+        renderer.destroyGameObject(removed.gameObject);
+        backend.clear();
+        renderer.drawPrepared();
+        assertEquals(1, backend.getDrawCalls());
+        assertEquals(3 * 6, backend.getCommands().stream()
+                .filter(c -> c.getName().equals("drawElements"))
+                .findFirst().orElseThrow().getArg(1));
+        assertEquals(0, backend.getBytesUploaded());
+    }
+}